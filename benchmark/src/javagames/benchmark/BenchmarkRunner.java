@@ -0,0 +1,28 @@
+package javagames.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+ * Runs the math benchmarks with the GC profiler attached. Next to the ops/s score, look at
+ * 'gc.alloc.rate.norm', which is the number of bytes allocated per operation. The non-allocating
+ * variants should report (close to) 0 B/op.
+ * 
+ * An optional argument is a regex that selects the benchmarks to run, e.g. 'Matrix' or 'normInto'
+ * */
+public class BenchmarkRunner {
+	
+	public static void main(String[] args) throws RunnerException {
+		String include = args.length > 0 ? args[0] : "javagames\\.benchmark\\..*";
+		
+		Options options = new OptionsBuilder()
+				.include(include)
+				.addProfiler(GCProfiler.class)
+				.build();
+		
+		new Runner(options).run();
+	}
+}
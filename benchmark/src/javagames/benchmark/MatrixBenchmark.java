@@ -0,0 +1,63 @@
+package javagames.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javagames.chapter03_util.Matrix3x3f;
+import javagames.chapter03_util.Vector2f;
+
+/*
+ * Matrix multiplication and vector transformation, each with the allocating and the non-allocating API
+ * */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MatrixBenchmark {
+	private Matrix3x3f a;
+	private Matrix3x3f b;
+	private Matrix3x3f dest;
+	private Vector2f vec;
+	private Vector2f vecDest;
+	
+	@Setup
+	public void setup() {
+		a = Matrix3x3f.rotate(0.5f).mul(Matrix3x3f.translate(2.0f, -1.0f));
+		b = Matrix3x3f.scale(319.5f, -239.5f).mul(Matrix3x3f.translate(319.5f, 239.5f));
+		dest = new Matrix3x3f();
+		vec = new Vector2f(0.25f, -0.75f);
+		vecDest = new Vector2f();
+	}
+	
+	@Benchmark
+	public Matrix3x3f multiplyAllocating() {
+		return a.mul(b);
+	}
+	
+	@Benchmark
+	public Matrix3x3f multiplyInto() {
+		return a.mulInto(b, dest);
+	}
+	
+	@Benchmark
+	public Vector2f transformAllocating() {
+		return b.mul(vec);
+	}
+	
+	@Benchmark
+	public Vector2f transformInto() {
+		return b.transformInto(vec, vecDest);
+	}
+}
@@ -0,0 +1,77 @@
+package javagames.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javagames.chapter03_util.Trig;
+import javagames.chapter03_util.Vector2f;
+
+/*
+ * Vector2f operations. The ones that rotate are run with both Trig modes
+ * */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VectorBenchmark {
+	@Param({"EXACT", "TABLE"})
+	private Trig.Mode trigMode;
+	
+	private Vector2f vec;
+	private Vector2f dest;
+	private float angle = 0.7f;
+	private float radius = 3.0f;
+	
+	@Setup
+	public void setup() {
+		Trig.setMode(trigMode);
+		vec = new Vector2f(3.0f, -4.0f);
+		dest = new Vector2f();
+	}
+	
+	@Benchmark
+	public float len() {
+		return vec.len();
+	}
+	
+	@Benchmark
+	public Vector2f normAllocating() {
+		return vec.norm();
+	}
+	
+	@Benchmark
+	public Vector2f normInto() {
+		return vec.norm(dest);
+	}
+	
+	// rotate() only exists as an in-place operation, so we rotate a copy to keep the input stable
+	@Benchmark
+	public Vector2f rotate() {
+		dest.set(vec);
+		dest.rotate(angle);
+		return dest;
+	}
+	
+	@Benchmark
+	public Vector2f polarToCartesianAllocating() {
+		return Vector2f.polarToCartesian(angle, radius);
+	}
+	
+	@Benchmark
+	public Vector2f polarToCartesianInto() {
+		return Vector2f.polarToCartesian(angle, radius, dest);
+	}
+}
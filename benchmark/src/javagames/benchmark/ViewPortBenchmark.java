@@ -0,0 +1,54 @@
+package javagames.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javagames.chapter03_util.Matrix3x3f;
+import javagames.chapter05_util.Utility;
+
+/*
+ * Building the world to screen and screen to world matrices the way SimpleFramework does
+ * */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ViewPortBenchmark {
+	// Not final, so the JIT can't fold the whole computation into a constant
+	private float worldWidth = 2.0f;
+	private float worldHeight = 2.0f;
+	private float screenWidth = 640.0f;
+	private float screenHeight = 480.0f;
+	private Matrix3x3f dest = new Matrix3x3f();
+	
+	@Benchmark
+	public Matrix3x3f viewPortAllocating() {
+		return Utility.createViewPortMatrix(worldWidth, worldHeight, screenWidth, screenHeight);
+	}
+	
+	@Benchmark
+	public Matrix3x3f viewPortInto() {
+		return Utility.createViewPortMatrix(worldWidth, worldHeight, screenWidth, screenHeight, dest);
+	}
+	
+	@Benchmark
+	public Matrix3x3f reverseViewPortAllocating() {
+		return Utility.createReverseViewPortMatrix(worldWidth, worldHeight, screenWidth, screenHeight);
+	}
+	
+	@Benchmark
+	public Matrix3x3f reverseViewPortInto() {
+		return Utility.createReverseViewPortMatrix(worldWidth, worldHeight, screenWidth, screenHeight, dest);
+	}
+}
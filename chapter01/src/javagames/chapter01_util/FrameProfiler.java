@@ -0,0 +1,135 @@
+package javagames.chapter01_util;
+
+import java.util.Arrays;
+
+/*
+ * Measures how long each phase of a frame takes with System.nanoTime(). Unlike FrameRate, which only counts
+ * frames per second, this keeps the last 'sampleCount' durations of every phase, so that we can see the
+ * slow frames (p95, p99, max) that an average hides.
+ * 
+ * Recording a sample doesn't allocate. The statistics are computed on request into reused Stats objects.
+ * Each phase should only be recorded from one thread
+ * */
+public class FrameProfiler {
+	
+	public enum Phase {
+		FRAME, // The whole frame, from one beginFrame() to the next, including any sleep
+		INPUT,
+		UPDATE,
+		RENDER,
+		PRESENT
+	}
+	
+	// All values are in milliseconds
+	public static class Stats {
+		public int samples;
+		public double min, avg, p50, p95, p99, max;
+	}
+	
+	private static final Phase[] PHASES = Phase.values();
+	
+	private final int capacity;
+	private final long[][] samples; // One ring buffer per phase
+	private final long[] counts; // Total number of samples recorded per phase. count % capacity is the next slot
+	private final long[] startTimes;
+	private final long[] sorted; // Scratch array for the percentiles
+	private final Stats[] stats;
+	private long lastFrameStart;
+	
+	public FrameProfiler(int sampleCount) {
+		capacity = sampleCount;
+		samples = new long[PHASES.length][sampleCount];
+		counts = new long[PHASES.length];
+		startTimes = new long[PHASES.length];
+		sorted = new long[sampleCount];
+		stats = new Stats[PHASES.length];
+		
+		for(int i = 0; i < stats.length; i++) {
+			stats[i] = new Stats();
+		}
+	}
+	
+	public void beginFrame() {
+		long now = System.nanoTime();
+		if(lastFrameStart != 0) {
+			record(Phase.FRAME, now - lastFrameStart);
+		}
+		lastFrameStart = now;
+	}
+	
+	public void begin(Phase phase) {
+		startTimes[phase.ordinal()] = System.nanoTime();
+	}
+	
+	public void end(Phase phase) {
+		record(phase, System.nanoTime() - startTimes[phase.ordinal()]);
+	}
+	
+	public void record(Phase phase, long nanos) {
+		int i = phase.ordinal();
+		samples[i][(int) (counts[i] % capacity)] = nanos;
+		counts[i]++;
+	}
+	
+	// Computes the statistics of the samples currently in the ring. The returned object is reused by the next
+	// call for the same phase
+	public Stats getStats(Phase phase) {
+		int i = phase.ordinal();
+		int n = (int) Math.min(counts[i], capacity);
+		Stats s = stats[i];
+		s.samples = n;
+		
+		if(n == 0) {
+			s.min = s.avg = s.p50 = s.p95 = s.p99 = s.max = 0.0;
+			return s;
+		}
+		
+		System.arraycopy(samples[i], 0, sorted, 0, n);
+		Arrays.sort(sorted, 0, n);
+		
+		long sum = 0;
+		for(int j = 0; j < n; j++) {
+			sum += sorted[j];
+		}
+		
+		s.min = toMillis(sorted[0]);
+		s.max = toMillis(sorted[n - 1]);
+		s.avg = toMillis(sum) / n;
+		s.p50 = toMillis(percentile(n, 0.50));
+		s.p95 = toMillis(percentile(n, 0.95));
+		s.p99 = toMillis(percentile(n, 0.99));
+		return s;
+	}
+	
+	// Frames per second over the last second of frame samples (or fewer, if the ring doesn't reach back that far).
+	// Unlike getStats() it doesn't sort, so it's cheap enough to call every frame
+	public double getFramesPerSecond() {
+		int i = Phase.FRAME.ordinal();
+		int n = (int) Math.min(counts[i], capacity);
+		long sum = 0;
+		int frames = 0;
+		
+		// Newest first
+		for(long k = counts[i] - 1; frames < n && sum < 1_000_000_000L; k--) {
+			sum += samples[i][(int) (k % capacity)];
+			frames++;
+		}
+		
+		return sum > 0 ? frames * 1.0E9 / sum : 0.0;
+	}
+	
+	public void reset() {
+		Arrays.fill(counts, 0);
+		lastFrameStart = 0;
+	}
+	
+	// Nearest rank percentile of the first n sorted samples
+	private long percentile(int n, double p) {
+		int rank = (int) Math.ceil(p * n);
+		return sorted[Math.max(0, Math.min(n - 1, rank - 1))];
+	}
+	
+	private static double toMillis(long nanos) {
+		return nanos / 1.0E6;
+	}
+}
@@ -0,0 +1,62 @@
+package javagames.chapter01_util;
+
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+
+import javagames.chapter01_util.FrameProfiler.Phase;
+import javagames.chapter01_util.FrameProfiler.Stats;
+
+/*
+ * Draws the FrameProfiler statistics on the screen. The text is only rebuilt every 'refreshMillis', so
+ * keeping the overlay on doesn't add string formatting to every frame. There's no FPS line, the game shows its own
+ * */
+public class FrameProfilerOverlay {
+	private static final Phase[] PHASES = Phase.values();
+	
+	private final FrameProfiler profiler;
+	private final long refreshNanos;
+	private final String[] lines = new String[PHASES.length + 1];
+	private long lastRefresh;
+	
+	public FrameProfilerOverlay(FrameProfiler profiler, long refreshMillis) {
+		this.profiler = profiler;
+		this.refreshNanos = refreshMillis * 1_000_000L;
+		refresh();
+	}
+	
+	public int getLineCount() {
+		return lines.length;
+	}
+	
+	// The width of the widest line. The columns have a fixed width, so it only grows for very slow phases (10 s and more)
+	public int getWidth(FontMetrics metrics) {
+		int width = 0;
+		for(String line : lines) {
+			width = Math.max(width, metrics.stringWidth(line));
+		}
+		return width;
+	}
+	
+	// Draws the table with its top left corner at (x, y). Font and color are taken from the Graphics object
+	public void draw(Graphics g, int x, int y) {
+		long now = System.nanoTime();
+		if(now - lastRefresh >= refreshNanos) {
+			refresh();
+			lastRefresh = now;
+		}
+		
+		int lineHeight = g.getFontMetrics().getHeight();
+		for(int i = 0; i < lines.length; i++) {
+			g.drawString(lines[i], x, y + i * lineHeight);
+		}
+	}
+	
+	private void refresh() {
+		lines[0] = String.format("%-8s%7s%7s%7s%7s%7s%7s", "ms", "min", "avg", "p50", "p95", "p99", "max");
+		
+		for(int i = 0; i < PHASES.length; i++) {
+			Stats s = profiler.getStats(PHASES[i]);
+			lines[i + 1] = String.format("%-8s%7.2f%7.2f%7.2f%7.2f%7.2f%7.2f", PHASES[i], s.min, s.avg, s.p50, s.p95, s.p99, s.max);
+		}
+	}
+}
@@ -4,6 +4,7 @@ public class FrameRate {
 	private String frameRateString;
 	private long lastFrameTime, delta;
 	private int frameCount;
+	private int framesPerSecond;
 	
 	public void initialize() {
 		lastFrameTime = System.currentTimeMillis();
@@ -19,6 +20,7 @@ public class FrameRate {
 		if(delta > 1000) {
 			delta -= 1000;
 			frameRateString = String.format("FPS: %d", frameCount);
+			framesPerSecond = frameCount;
 			frameCount = 0;
 		}
 	}
@@ -26,4 +28,9 @@ public class FrameRate {
 	public String getFrameRate() {
 		return frameRateString;
 	}
+	
+	// The same value as a number, for callers that format it themselves
+	public int getFramesPerSecond() {
+		return framesPerSecond;
+	}
 }
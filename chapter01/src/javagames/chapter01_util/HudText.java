@@ -0,0 +1,413 @@
+package javagames.chapter01_util;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/*
+ * Text for HUDs and debug readouts that sit on the screen every frame. drawString() lays the text out again on
+ * every call, and String.format() creates new strings each time, so a handful of readouts allocate and cost
+ * more than they should.
+ *
+ * Each Line is built into a reused char[] with the append() methods, which format numbers without going through
+ * String.format(). How it's drawn depends on the surface:
+ *
+ * Accelerated surfaces (e.g. the canvas with the Direct3D, OpenGL or Metal pipeline): The printable ASCII glyphs
+ * (32 to 126) of the font and colour are rasterized once into an atlas. When a line is drawn, it's compared with what
+ * it showed last time. An unchanged line is blitted from its cached image with one drawImage(), which Java2D keeps in
+ * video memory. A changed line is rebuilt by copying glyph pixels from the atlas, without going through Java2D at all.
+ * Characters outside the atlas fall back to drawString() into the line image. The atlas holds aliased glyphs with
+ * integer metrics, so a Graphics that antialiases text or uses fractional metrics gets drawChars() instead, which
+ * honours its hints.
+ *
+ * Software surfaces (BufferedImages, the headless mode, unaccelerated pipelines): Blending a line image costs more
+ * than drawing the text, since Java2D already caches the rasterized glyphs itself. The char[] is drawn directly
+ * with drawChars(), which still avoids the String and the formatting.
+ *
+ * Not thread safe. Build and draw the lines on the rendering thread
+ * */
+public class HudText {
+	private static final char FIRST_CHAR = 32;
+	private static final char LAST_CHAR = 126;
+	private static final int PAD = 2; // Room for glyphs that reach past their advance (e.g. italics)
+	
+	private final Font font;
+	private final Color color;
+	private final FontMetrics metrics;
+	private final int ascent;
+	private final int cellHeight;
+	private final int[] advances = new int[LAST_CHAR - FIRST_CHAR + 1];
+	private final int[] cellOffsets = new int[LAST_CHAR - FIRST_CHAR + 1]; // x of each glyph cell in the atlas
+	private int atlasWidth;
+	private int[] atlas; // Premultiplied ARGB. Only created once a line is drawn on an accelerated surface
+	private GraphicsConfiguration lastConfiguration;
+	private boolean lastAccelerated;
+	
+	public HudText(Font font, Color color) {
+		this.font = font;
+		this.color = color;
+		
+		BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB_PRE);
+		Graphics2D sg = scratch.createGraphics();
+		metrics = sg.getFontMetrics(font);
+		sg.dispose();
+		
+		ascent = metrics.getAscent();
+		cellHeight = ascent + metrics.getDescent() + 2 * PAD;
+		
+		for(char c = FIRST_CHAR; c <= LAST_CHAR; c++) {
+			advances[c - FIRST_CHAR] = metrics.charWidth(c);
+		}
+	}
+	
+	public Line createLine() {
+		return new Line();
+	}
+	
+	private void createAtlas() {
+		int x = 0;
+		for(char c = FIRST_CHAR; c <= LAST_CHAR; c++) {
+			cellOffsets[c - FIRST_CHAR] = x;
+			x += advances[c - FIRST_CHAR] + 2 * PAD;
+		}
+		atlasWidth = x;
+		
+		BufferedImage image = new BufferedImage(atlasWidth, cellHeight, BufferedImage.TYPE_INT_ARGB_PRE);
+		Graphics2D g = image.createGraphics();
+		g.setFont(font);
+		g.setColor(color);
+		char[] glyph = new char[1];
+		for(char c = FIRST_CHAR; c <= LAST_CHAR; c++) {
+			glyph[0] = c;
+			g.drawChars(glyph, 0, 1, cellOffsets[c - FIRST_CHAR] + PAD, PAD + ascent);
+		}
+		g.dispose();
+		
+		atlas = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+	}
+	
+	// getImageCapabilities() may create a new object every time, so the answer is kept for the last configuration
+	private boolean isAccelerated(Graphics g) {
+		if(!(g instanceof Graphics2D)) {
+			return false;
+		}
+		
+		GraphicsConfiguration gc = ((Graphics2D) g).getDeviceConfiguration();
+		if(gc != lastConfiguration) {
+			lastConfiguration = gc;
+			lastAccelerated = gc.getImageCapabilities().isAccelerated();
+		}
+		return lastAccelerated;
+	}
+	
+	// The atlas is rasterized with the default hints: aliased text and integer advances. Antialiased text (also when
+	// it follows KEY_ANTIALIASING) or fractional metrics give different pixels and advances, and the atlas' merging of
+	// neighbouring glyphs is only exact for aliased ones
+	private static boolean matchesAtlasHints(Graphics2D g) {
+		Object text = g.getRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING);
+		boolean aliased = text == RenderingHints.VALUE_TEXT_ANTIALIAS_OFF
+				|| ((text == null || text == RenderingHints.VALUE_TEXT_ANTIALIAS_DEFAULT)
+						&& g.getRenderingHint(RenderingHints.KEY_ANTIALIASING) != RenderingHints.VALUE_ANTIALIAS_ON);
+		return aliased && g.getRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS) != RenderingHints.VALUE_FRACTIONALMETRICS_ON;
+	}
+	
+	public class Line {
+		private char[] chars = new char[32];
+		private int length;
+		private char[] shown = new char[32]; // What the cached image currently shows
+		private int shownLength = -1;
+		private final char[] digits = new char[20];
+		// For append(double, int). Double.toString() never has more than 17 significant digits plus a trailing 0
+		private final StringBuilder scratch = new StringBuilder(32);
+		private final char[] decimalDigits = new char[24];
+		private int decimalExponent;
+		
+		// The line is built in 'pixels' and then copied into the image. Taking the image's own pixel array would stop
+		// Java2D from caching the image in video memory, and the cached lines are exactly what we want it to keep there
+		private BufferedImage image;
+		private int[] pixels;
+		private int imageWidth; // The used part of the image, it can be wider
+		
+		public Line clear() {
+			length = 0;
+			return this;
+		}
+		
+		public Line append(char c) {
+			ensureCapacity(length + 1);
+			chars[length++] = c;
+			return this;
+		}
+		
+		public Line append(String s) {
+			int n = s.length();
+			ensureCapacity(length + n);
+			s.getChars(0, n, chars, length);
+			length += n;
+			return this;
+		}
+		
+		public Line append(boolean b) {
+			return append(b ? "true" : "false");
+		}
+		
+		public Line append(long value) {
+			if(value == Long.MIN_VALUE) {
+				return append(Long.toString(value)); // Can't be negated
+			}
+			
+			if(value < 0) {
+				append('-');
+				value = -value;
+			}
+			
+			int n = 0;
+			do {
+				digits[n++] = (char) ('0' + value % 10);
+				value /= 10;
+			} while(value != 0);
+			
+			ensureCapacity(length + n);
+			while(n > 0) {
+				chars[length++] = digits[--n];
+			}
+			return this;
+		}
+		
+		// Like String.format("%.<decimals>f", value), including its rounding: Formatter takes the shortest decimal digits
+		// that identify the double (the ones Double.toString() shows) and rounds those half up, so 1.005 becomes 1.01 even
+		// though the double is slightly below 1.005. The digits are written into a reused StringBuilder. That doesn't
+		// allocate for most values, but the JDK falls back to big integer arithmetic for some (a few bytes per call on
+		// average for HUD-sized numbers, more for very large or very small ones)
+		public Line append(double value, int decimals) {
+			if(decimals < 0) {
+				throw new IllegalArgumentException("Negative number of decimals: " + decimals);
+			}
+			if(Double.isNaN(value)) {
+				return append("NaN");
+			}
+			if(Double.isInfinite(value)) {
+				return append(value > 0 ? "Infinity" : "-Infinity");
+			}
+			
+			if(Double.doubleToRawLongBits(value) < 0) {
+				append('-'); // Also for values that round to zero, which String.format() shows as -0.00
+			}
+			
+			// The value is 0.d1d2d3... * 10^exponent
+			int count = parseDigits(Math.abs(value));
+			int exponent = decimalExponent;
+			
+			// Round half up at the last decimal. 'keep' is the number of digits in front of it
+			int keep = exponent + decimals;
+			if(keep < 0) {
+				count = 0;
+			} else if(keep < count) {
+				boolean up = decimalDigits[keep] >= '5';
+				count = keep;
+				for(int i = keep - 1; up && i >= 0; i--) {
+					if(decimalDigits[i] == '9') {
+						decimalDigits[i] = '0';
+					} else {
+						decimalDigits[i]++;
+						up = false;
+					}
+				}
+				if(up) {
+					// Carried out of the first digit, e.g. 9.996 -> 10.00
+					decimalDigits[0] = '1';
+					count = 1;
+					exponent++;
+				}
+			}
+			
+			ensureCapacity(length + Math.max(exponent, 1) + 1 + decimals);
+			if(exponent <= 0) {
+				chars[length++] = '0';
+			} else {
+				for(int i = 0; i < exponent; i++) {
+					chars[length++] = i < count ? decimalDigits[i] : '0';
+				}
+			}
+			
+			if(decimals > 0) {
+				chars[length++] = '.';
+				for(int i = exponent; i < exponent + decimals; i++) {
+					chars[length++] = i >= 0 && i < count ? decimalDigits[i] : '0';
+				}
+			}
+			return this;
+		}
+		
+		// Puts the significant digits of Double.toString(value) into decimalDigits, without leading zeros, and their
+		// decimal exponent into decimalExponent. Handles both the plain ("0.00125") and the computerized ("1.25E-5") form
+		private int parseDigits(double value) {
+			scratch.setLength(0);
+			scratch.append(value);
+			
+			int count = 0;
+			int exponent = 0;
+			boolean fraction = false;
+			for(int i = 0; i < scratch.length(); i++) {
+				char c = scratch.charAt(i);
+				if(c == '.') {
+					fraction = true;
+				} else if(c == 'E') {
+					exponent += parseExponent(i + 1);
+					break;
+				} else if(count == 0 && c == '0') {
+					if(fraction) {
+						exponent--;
+					}
+				} else {
+					if(count < decimalDigits.length) {
+						decimalDigits[count++] = c;
+					}
+					if(!fraction) {
+						exponent++;
+					}
+				}
+			}
+			
+			decimalExponent = exponent;
+			return count;
+		}
+		
+		private int parseExponent(int start) {
+			boolean negative = scratch.charAt(start) == '-';
+			int e = 0;
+			for(int i = negative ? start + 1 : start; i < scratch.length(); i++) {
+				e = e * 10 + (scratch.charAt(i) - '0');
+			}
+			return negative ? -e : e;
+		}
+		
+		public int length() {
+			return length;
+		}
+		
+		// The advance width of the text in pixels, as drawn with the font of the HudText
+		public int getWidth() {
+			return metrics.charsWidth(chars, 0, length);
+		}
+		
+		// Draws the line with its baseline at y, like drawString(). When drawChars() is used (software surfaces and
+		// antialiased text), g is left with the font and colour of the HudText
+		public void draw(Graphics g, int x, int y) {
+			if(length == 0) {
+				return;
+			}
+			
+			if(!isAccelerated(g) || !matchesAtlasHints((Graphics2D) g)) {
+				g.setFont(font);
+				g.setColor(color);
+				g.drawChars(chars, 0, length, x, y);
+				return;
+			}
+			
+			if(atlas == null) {
+				createAtlas();
+			}
+			
+			if(length != shownLength || !Arrays.equals(chars, 0, length, shown, 0, length)) {
+				rebuild();
+			}
+			
+			int left = x - PAD;
+			int top = y - ascent - PAD;
+			g.drawImage(image, left, top, left + imageWidth, top + cellHeight, 0, 0, imageWidth, cellHeight, null);
+		}
+		
+		private void rebuild() {
+			int width = 2 * PAD;
+			boolean inAtlas = true;
+			for(int i = 0; i < length; i++) {
+				char c = chars[i];
+				if(c < FIRST_CHAR || c > LAST_CHAR) {
+					inAtlas = false;
+					break;
+				}
+				width += advances[c - FIRST_CHAR];
+			}
+			
+			if(!inAtlas) {
+				rebuildWithDrawString();
+			} else {
+				ensureImage(width);
+				Arrays.fill(pixels, 0, width * cellHeight, 0);
+				
+				int penX = 0;
+				for(int i = 0; i < length; i++) {
+					int index = chars[i] - FIRST_CHAR;
+					copyGlyph(cellOffsets[index], advances[index] + 2 * PAD, penX, width);
+					penX += advances[index];
+				}
+				image.getRaster().setDataElements(0, 0, width, cellHeight, pixels);
+				imageWidth = width;
+			}
+			
+			if(shown.length < length) {
+				shown = new char[chars.length];
+			}
+			System.arraycopy(chars, 0, shown, 0, length);
+			shownLength = length;
+		}
+		
+		// Neighbouring cells overlap by the padding, so the more opaque pixel wins instead of overwriting
+		private void copyGlyph(int srcX, int cellWidth, int dstX, int stride) {
+			for(int row = 0; row < cellHeight; row++) {
+				int src = row * atlasWidth + srcX;
+				int dst = row * stride + dstX;
+				for(int col = 0; col < cellWidth; col++) {
+					int p = atlas[src + col];
+					if(p != 0 && (p >>> 24) > (pixels[dst + col] >>> 24)) {
+						pixels[dst + col] = p;
+					}
+				}
+			}
+		}
+		
+		private void rebuildWithDrawString() {
+			String text = new String(chars, 0, length);
+			
+			BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB_PRE);
+			Graphics2D sg = scratch.createGraphics();
+			int width = sg.getFontMetrics(font).stringWidth(text) + 2 * PAD;
+			sg.dispose();
+			
+			ensureImage(width);
+			
+			Graphics2D g = image.createGraphics();
+			g.setComposite(AlphaComposite.Clear);
+			g.fillRect(0, 0, width, cellHeight);
+			g.setComposite(AlphaComposite.SrcOver);
+			g.setFont(font);
+			g.setColor(color);
+			g.drawString(text, PAD, PAD + ascent);
+			g.dispose();
+			imageWidth = width;
+		}
+		
+		private void ensureImage(int width) {
+			if(image == null || image.getWidth() < width) {
+				int capacity = Math.max(width, image == null ? 0 : image.getWidth() * 2);
+				image = new BufferedImage(capacity, cellHeight, BufferedImage.TYPE_INT_ARGB_PRE);
+				pixels = new int[capacity * cellHeight];
+			}
+		}
+		
+		private void ensureCapacity(int capacity) {
+			if(capacity > chars.length) {
+				chars = Arrays.copyOf(chars, Math.max(capacity, chars.length * 2));
+			}
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package javagames.render;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.lang.reflect.Field;
+import java.util.Random;
+
+import javagames.chapter01_util.HudText;
+
+/*
+ * Checks that HudText.Line formats numbers exactly like String.valueOf() and String.format("%.<n>f"). Run main(),
+ * it prints the mismatches it finds and exits with status 1 if there are any. No window is opened. Line only ever
+ * draws its text, so the test reads the characters back from its buffer
+ * */
+public class HudTextFormatTest {
+	private static final int RANDOM_VALUES = 200000;
+	
+	private final HudText.Line line = new HudText(new Font(Font.MONOSPACED, Font.PLAIN, 12), Color.WHITE).createLine();
+	private final Field chars;
+	private long checks;
+	private long failures;
+	
+	private HudTextFormatTest() throws ReflectiveOperationException {
+		chars = HudText.Line.class.getDeclaredField("chars");
+		chars.setAccessible(true);
+	}
+	
+	private String text(HudText.Line line) {
+		try {
+			return new String((char[]) chars.get(line), 0, line.length());
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private void checkDouble(double value, int decimals) {
+		String expected = String.format("%." + decimals + "f", value);
+		String actual = text(line.clear().append(value, decimals));
+		check(expected, actual, value + " with " + decimals + " decimals");
+	}
+	
+	private void checkLong(long value) {
+		check(String.valueOf(value), text(line.clear().append(value)), Long.toString(value));
+	}
+	
+	private void check(String expected, String actual, String what) {
+		checks++;
+		if(!expected.equals(actual)) {
+			failures++;
+			if(failures <= 20) {
+				System.out.println("Mismatch for " + what + ": expected " + expected + ", got " + actual);
+			}
+		}
+	}
+	
+	private void run() {
+		// Halfway cases that binary rounding gets wrong, carries, signed zeros and huge values
+		double[] edges = {
+			0.0, -0.0, 0.5, 1.5, 2.5, -0.5, 0.05, 0.005, 0.0005, 1.005, -1.005, 2.675, 1.115, 9.995, 99.995, 0.995,
+			9.9999999, -9.9999999, 0.001, -0.001, 0.0049, 123456.789, 1.0E7, 1.0E-3, 9.999999E-4, 1.0E15, 1.0E16,
+			1.0E17, 1.2345E22, 1.0E300, Double.MAX_VALUE, Double.MIN_VALUE, -Double.MIN_VALUE, Double.MIN_NORMAL,
+			Long.MAX_VALUE, Long.MIN_VALUE, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY
+		};
+		for(double value : edges) {
+			for(int decimals = 0; decimals <= 8; decimals++) {
+				checkDouble(value, decimals);
+			}
+		}
+		
+		// Values with a few decimals hit the halfway cases often, e.g. x.xx5
+		Random random = new Random(1);
+		for(int i = 0; i < RANDOM_VALUES; i++) {
+			int decimals = random.nextInt(5);
+			double value = Math.round(random.nextDouble() * 2000000.0 - 1000000.0) / 1000.0;
+			checkDouble(value, decimals);
+			checkDouble(value, 2);
+			
+			// Any magnitude
+			double scaled = (random.nextDouble() - 0.5) * Math.pow(10.0, random.nextInt(40) - 20);
+			checkDouble(scaled, decimals);
+			
+			checkDouble(Double.longBitsToDouble(random.nextLong()), random.nextInt(4));
+		}
+		
+		long[] longs = { 0, 1, -1, 9, 10, -10, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE };
+		for(long value : longs) {
+			checkLong(value);
+		}
+		for(int i = 0; i < RANDOM_VALUES; i++) {
+			checkLong(random.nextLong() >> random.nextInt(64));
+		}
+		
+		check("x true false", text(line.clear().append('x').append(' ').append(true).append(" ").append(false)), "char/boolean/String");
+	}
+	
+	public static void main(String[] args) throws ReflectiveOperationException {
+		HudTextFormatTest test = new HudTextFormatTest();
+		test.run();
+		System.out.println(test.checks + " checks, " + test.failures + " mismatches");
+		if(test.failures > 0) {
+			System.exit(1);
+		}
+	}
+}
@@ -2,6 +2,7 @@ package javagames.chapter02_util;
 
 import java.awt.AWTException;
 import java.awt.Component;
+import java.awt.GraphicsEnvironment;
 import java.awt.Point;
 import java.awt.Robot;
 import java.awt.event.MouseEvent;
@@ -39,10 +40,13 @@ public class RelativeMouseInput implements MouseListener, MouseMotionListener, M
 		
 		this.component = component;
 
-		try {
-			robot = new Robot();
-		} catch (AWTException e) {
-			e.printStackTrace();
+		// There is no mouse to move without a display, so we just don't create the robot
+		if(!GraphicsEnvironment.isHeadless()) {
+			try {
+				robot = new Robot();
+			} catch (AWTException e) {
+				e.printStackTrace();
+			}
 		}
 	}
 	
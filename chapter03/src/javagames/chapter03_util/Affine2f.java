@@ -0,0 +1,169 @@
+package javagames.chapter03_util;
+
+/*
+ * A 2D affine transformation. It is a Matrix3x3f without the third column, which is always (0, 0, 1) for
+ * translate, scale, shear and rotate, so it only stores six values. The same row major convention is used:
+ * 
+ * [m00, m01]
+ * [m10, m11]
+ * [m20, m21] <- translation
+ * 
+ * Multiplying two of them takes 12 multiplications instead of 27, and a full scale-rotate-translate
+ * transformation can be built directly with setTRS() without multiplying three matrices
+ * */
+public class Affine2f {
+	float m00, m01;
+	float m10, m11;
+	float m20, m21;
+	
+	// Identity by default
+	public Affine2f() {
+		setIdentity();
+	}
+	
+	public Affine2f(Affine2f a) {
+		set(a);
+	}
+	
+	public Affine2f set(float m00, float m01, float m10, float m11, float m20, float m21) {
+		this.m00 = m00; this.m01 = m01;
+		this.m10 = m10; this.m11 = m11;
+		this.m20 = m20; this.m21 = m21;
+		return this;
+	}
+	
+	public Affine2f set(Affine2f a) {
+		return set(a.m00, a.m01, a.m10, a.m11, a.m20, a.m21);
+	}
+	
+	// Takes the affine part of the matrix. The third column is ignored
+	public Affine2f set(Matrix3x3f m) {
+		return set(m.m00, m.m01, m.m10, m.m11, m.m20, m.m21);
+	}
+	
+	public Affine2f setIdentity() {
+		return set(1.0f, 0.0f, 0.0f, 1.0f, 0.0f, 0.0f);
+	}
+	
+	public Affine2f setTranslate(float x, float y) {
+		return set(1.0f, 0.0f, 0.0f, 1.0f, x, y);
+	}
+	
+	public Affine2f setScale(float x, float y) {
+		return set(x, 0.0f, 0.0f, y, 0.0f, 0.0f);
+	}
+	
+	public Affine2f setRotate(float rad) {
+		float cos = Trig.cos(rad);
+		float sin = Trig.sin(rad);
+		return set(cos, sin, -sin, cos, 0.0f, 0.0f);
+	}
+	
+	// Scales, then rotates, then translates. It gives the same result as
+	// Matrix3x3f.scale(sx, sy).mul(Matrix3x3f.rotate(rad)).mul(Matrix3x3f.translate(tx, ty))
+	// but without any matrix multiplication
+	public Affine2f setTRS(float tx, float ty, float rad, float sx, float sy) {
+		float cos = Trig.cos(rad);
+		float sin = Trig.sin(rad);
+		return set(sx * cos, sx * sin, -sy * sin, sy * cos, tx, ty);
+	}
+	
+	public Affine2f mul(Affine2f a) {
+		return mulInto(a, new Affine2f());
+	}
+	
+	public Affine2f mulLocal(Affine2f a) {
+		return mulInto(a, this);
+	}
+	
+	// Same order as Matrix3x3f.mul(): this transformation is applied first, then a.
+	// dest can be 'this' or a
+	public Affine2f mulInto(Affine2f a, Affine2f dest) {
+		float r00 = m00 * a.m00 + m01 * a.m10;
+		float r01 = m00 * a.m01 + m01 * a.m11;
+		float r10 = m10 * a.m00 + m11 * a.m10;
+		float r11 = m10 * a.m01 + m11 * a.m11;
+		float r20 = m20 * a.m00 + m21 * a.m10 + a.m20;
+		float r21 = m20 * a.m01 + m21 * a.m11 + a.m21;
+		
+		return dest.set(r00, r01, r10, r11, r20, r21);
+	}
+	
+	public float determinant() {
+		return m00 * m11 - m01 * m10;
+	}
+	
+	public Affine2f inverse() {
+		return invertInto(new Affine2f());
+	}
+	
+	// Since the transformation is affine, the inverse is just the inverse of the 2x2 part and the
+	// translation pushed back through it. dest can be 'this'
+	public Affine2f invertInto(Affine2f dest) {
+		float det = determinant();
+		if(det == 0.0f) {
+			throw new ArithmeticException("Transformation is not invertible");
+		}
+		
+		float invDet = 1.0f / det;
+		float i00 = m11 * invDet;
+		float i01 = -m01 * invDet;
+		float i10 = -m10 * invDet;
+		float i11 = m00 * invDet;
+		float i20 = -(m20 * i00 + m21 * i10);
+		float i21 = -(m20 * i01 + m21 * i11);
+		
+		return dest.set(i00, i01, i10, i11, i20, i21);
+	}
+	
+	public Vector2f mul(Vector2f vec) {
+		return transformInto(vec, new Vector2f());
+	}
+	
+	// Same as Matrix3x3f.transformInto(). w is left untouched because the third column is (0, 0, 1).
+	// src and dest can be the same vector
+	public Vector2f transformInto(Vector2f src, Vector2f dest) {
+		float x = src.x * m00 + src.y * m10 + src.w * m20;
+		float y = src.x * m01 + src.y * m11 + src.w * m21;
+		
+		dest.x = x;
+		dest.y = y;
+		dest.w = src.w;
+		return dest;
+	}
+	
+	// Bulk version for points stored as x and y arrays. Works just like Matrix3x3f.transform()
+	public void transform(float[] xs, float[] ys, float[] outXs, float[] outYs, int offset, int count) {
+		float a = m00, b = m01;
+		float c = m10, d = m11;
+		float tx = m20, ty = m21;
+		
+		int end = offset + count;
+		for(int i = offset; i < end; i++) {
+			float x = xs[i];
+			float y = ys[i];
+			outXs[i] = x * a + y * c + tx;
+			outYs[i] = x * b + y * d + ty;
+		}
+	}
+	
+	public Matrix3x3f toMatrix() {
+		return toMatrix(new Matrix3x3f());
+	}
+	
+	public Matrix3x3f toMatrix(Matrix3x3f dest) {
+		return dest.set(m00, m01, 0.0f,
+				m10, m11, 0.0f,
+				m20, m21, 1.0f);
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("[").append(m00).append(",\t").append(m01).append("]\n");
+		sb.append("[").append(m10).append(",\t").append(m11).append("]\n");
+		sb.append("[").append(m20).append(",\t").append(m21).append("]\n");
+		
+		return sb.toString();
+	}
+}
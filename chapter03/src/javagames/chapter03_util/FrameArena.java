@@ -0,0 +1,154 @@
+package javagames.chapter03_util;
+
+import java.util.Arrays;
+
+/*
+ * Hands out scratch Vector2f and Matrix3x3f objects that are only valid until the next reset(). The game
+ * loop resets the arena once per frame, so temporaries used inside update and render are recycled instead
+ * of being garbage collected. Once the arena has grown to the most objects a frame needs, it doesn't
+ * allocate anything anymore.
+ * 
+ * Never keep an object from the arena across frames. In debug mode, reset() fills every handed out object
+ * with NaN, so stale reads show up immediately, and handing it out again throws if it was written after
+ * the reset. The arena isn't thread safe. Only use it from the game thread
+ * */
+public class FrameArena {
+	private Vector2f[] vectors;
+	private Matrix3x3f[] matrices;
+	private int vectorCount;
+	private int matrixCount;
+	private int vectorHighWater;
+	private int matrixHighWater;
+	private boolean debug;
+	
+	public FrameArena() {
+		this(256, 32);
+	}
+	
+	public FrameArena(int vectorCapacity, int matrixCapacity) {
+		vectors = new Vector2f[vectorCapacity];
+		matrices = new Matrix3x3f[matrixCapacity];
+		
+		for(int i = 0; i < vectors.length; i++) {
+			vectors[i] = new Vector2f();
+		}
+		
+		for(int i = 0; i < matrices.length; i++) {
+			matrices[i] = new Matrix3x3f();
+		}
+	}
+	
+	public void setDebug(boolean debug) {
+		this.debug = debug;
+		
+		// In debug mode every object that isn't handed out is kept poisoned
+		if(debug) {
+			for(int i = vectorCount; i < vectors.length; i++) {
+				poison(vectors[i]);
+			}
+			
+			for(int i = matrixCount; i < matrices.length; i++) {
+				poison(matrices[i]);
+			}
+		}
+	}
+	
+	public boolean isDebug() {
+		return debug;
+	}
+	
+	// Returns a vector set to (0, 0)
+	public Vector2f vector() {
+		if(vectorCount == vectors.length) {
+			vectors = grow(vectors);
+			for(int i = vectorCount; i < vectors.length; i++) {
+				vectors[i] = new Vector2f();
+				if(debug) {
+					poison(vectors[i]);
+				}
+			}
+		}
+		
+		Vector2f v = vectors[vectorCount++];
+		if(debug && !isPoisoned(v)) {
+			throw new IllegalStateException("Arena vector was modified after the arena was reset: " + v);
+		}
+		
+		return v.set(0.0f, 0.0f);
+	}
+	
+	public Vector2f vector(float x, float y) {
+		return vector().set(x, y);
+	}
+	
+	// Returns an identity matrix
+	public Matrix3x3f matrix() {
+		if(matrixCount == matrices.length) {
+			matrices = grow(matrices);
+			for(int i = matrixCount; i < matrices.length; i++) {
+				matrices[i] = new Matrix3x3f();
+				if(debug) {
+					poison(matrices[i]);
+				}
+			}
+		}
+		
+		Matrix3x3f m = matrices[matrixCount++];
+		if(debug && !isPoisoned(m)) {
+			throw new IllegalStateException("Arena matrix was modified after the arena was reset:\n" + m);
+		}
+		
+		return m.setIdentity();
+	}
+	
+	// Makes every object handed out since the last reset available again
+	public void reset() {
+		if(debug) {
+			for(int i = 0; i < vectorCount; i++) {
+				poison(vectors[i]);
+			}
+			
+			for(int i = 0; i < matrixCount; i++) {
+				poison(matrices[i]);
+			}
+		}
+		
+		vectorHighWater = Math.max(vectorHighWater, vectorCount);
+		matrixHighWater = Math.max(matrixHighWater, matrixCount);
+		vectorCount = 0;
+		matrixCount = 0;
+	}
+	
+	// The most vectors and matrices a single frame has used so far. Useful for sizing the arena up front
+	public int getVectorHighWater() {
+		return Math.max(vectorHighWater, vectorCount);
+	}
+	
+	public int getMatrixHighWater() {
+		return Math.max(matrixHighWater, matrixCount);
+	}
+	
+	private static void poison(Vector2f v) {
+		v.x = v.y = v.w = Float.NaN;
+	}
+	
+	private static void poison(Matrix3x3f m) {
+		m.set(Float.NaN, Float.NaN, Float.NaN,
+				Float.NaN, Float.NaN, Float.NaN,
+				Float.NaN, Float.NaN, Float.NaN);
+	}
+	
+	private static boolean isPoisoned(Vector2f v) {
+		return Float.isNaN(v.x) && Float.isNaN(v.y) && Float.isNaN(v.w);
+	}
+	
+	private static boolean isPoisoned(Matrix3x3f m) {
+		return Float.isNaN(m.m00) && Float.isNaN(m.m01) && Float.isNaN(m.m02)
+				&& Float.isNaN(m.m10) && Float.isNaN(m.m11) && Float.isNaN(m.m12)
+				&& Float.isNaN(m.m20) && Float.isNaN(m.m21) && Float.isNaN(m.m22);
+	}
+	
+	private static <T> T[] grow(T[] array) {
+		return Arrays.copyOf(array, Math.max(16, array.length * 2));
+	}
+}
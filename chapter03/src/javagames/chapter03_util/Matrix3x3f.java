@@ -1,7 +1,16 @@
 package javagames.chapter03_util;
 
 public class Matrix3x3f {
-	private float[][] m = new float[3][3];
+	// The matrix is stored as nine plain fields instead of a float[3][3]. That way creating or copying a matrix
+	// doesn't allocate four arrays, and the JIT can keep the values in registers. mRC means row R, column C
+	float m00, m01, m02;
+	float m10, m11, m12;
+	float m20, m21, m22;
+	
+	// The inverse is computed the first time it's needed and kept until the matrix changes. Every change goes
+	// through set(), which marks it stale. Like the rest of this class, this is not thread safe
+	private Matrix3x3f inverse;
+	private boolean inverseValid;
 	
 	public Matrix3x3f() {}
 	
@@ -9,121 +18,257 @@ public class Matrix3x3f {
 		setMatrix(m);
 	}
 	
+	public Matrix3x3f(Matrix3x3f m) {
+		set(m);
+	}
+	
 	public void setMatrix(float[][] m) {
-		this.m = m;
+		set(m[0][0], m[0][1], m[0][2],
+			m[1][0], m[1][1], m[1][2],
+			m[2][0], m[2][1], m[2][2]);
+	}
+	
+	// All the set methods return 'this' so that they can be chained or used inline
+	public Matrix3x3f set(float m00, float m01, float m02,
+			float m10, float m11, float m12,
+			float m20, float m21, float m22) {
+		this.m00 = m00; this.m01 = m01; this.m02 = m02;
+		this.m10 = m10; this.m11 = m11; this.m12 = m12;
+		this.m20 = m20; this.m21 = m21; this.m22 = m22;
+		inverseValid = false;
+		return this;
+	}
+	
+	public Matrix3x3f set(Matrix3x3f m) {
+		return set(m.m00, m.m01, m.m02,
+				m.m10, m.m11, m.m12,
+				m.m20, m.m21, m.m22);
+	}
+	
+	public Matrix3x3f setZero() {
+		return set(0.0f, 0.0f, 0.0f,
+				0.0f, 0.0f, 0.0f,
+				0.0f, 0.0f, 0.0f);
+	}
+	
+	public Matrix3x3f setIdentity() {
+		return set(1.0f, 0.0f, 0.0f,
+				0.0f, 1.0f, 0.0f,
+				0.0f, 0.0f, 1.0f);
+	}
+	
+	public Matrix3x3f setTranslate(float x, float y) {
+		return set(1.0f, 0.0f, 0.0f,
+				0.0f, 1.0f, 0.0f,
+				   x,	y, 1.0f);
+	}
+	
+	public Matrix3x3f setScale(float x, float y) {
+		return set(   x, 0.0f, 0.0f,
+				0.0f,	y, 0.0f,
+				0.0f, 0.0f, 1.0f);
+	}
+	
+	public Matrix3x3f setShear(float x, float y) {
+		return set(1.0f,	y, 0.0f,
+				   x, 1.0f, 0.0f,
+				0.0f, 0.0f, 1.0f);
+	}
+	
+	public Matrix3x3f setRotate(float rad) {
+		float cos = Trig.cos(rad);
+		float sin = Trig.sin(rad);
+		return set( cos,  sin, 0.0f,
+				-sin,  cos, 0.0f,
+				0.0f, 0.0f, 1.0f);
+	}
+	
+	// Returns the element at the given row and column
+	public float get(int row, int col) {
+		switch(row * 3 + col) {
+			case 0: return m00;
+			case 1: return m01;
+			case 2: return m02;
+			case 3: return m10;
+			case 4: return m11;
+			case 5: return m12;
+			case 6: return m20;
+			case 7: return m21;
+			case 8: return m22;
+			default: throw new IndexOutOfBoundsException("(" + row + ", " + col + ")");
+		}
 	}
 	
 	public Matrix3x3f add(Matrix3x3f m1) {
-		return new Matrix3x3f(new float[][] {
-			{
-			this.m[0][0] + m1.m[0][0],
-			this.m[0][1] + m1.m[0][1],
-			this.m[0][2] + m1.m[0][2],
-			},
-			{
-			this.m[1][0] + m1.m[1][0],
-			this.m[1][1] + m1.m[1][1],
-			this.m[1][2] + m1.m[1][2],
-			},
-			{
-			this.m[2][0] + m1.m[2][0],
-			this.m[2][1] + m1.m[2][1],
-			this.m[2][2] + m1.m[2][2],
-			}
-		});
+		return new Matrix3x3f().set(
+			m00 + m1.m00, m01 + m1.m01, m02 + m1.m02,
+			m10 + m1.m10, m11 + m1.m11, m12 + m1.m12,
+			m20 + m1.m20, m21 + m1.m21, m22 + m1.m22
+		);
 	}
 	
 	public Matrix3x3f sub(Matrix3x3f m1) {
-		return new Matrix3x3f(new float[][] {
-			{
-			this.m[0][0] - m1.m[0][0],
-			this.m[0][1] - m1.m[0][1],
-			this.m[0][2] - m1.m[0][2],
-			},
-			{
-			this.m[1][0] - m1.m[1][0],
-			this.m[1][1] - m1.m[1][1],
-			this.m[1][2] - m1.m[1][2],
-			},
-			{
-			this.m[2][0] - m1.m[2][0],
-			this.m[2][1] - m1.m[2][1],
-			this.m[2][2] - m1.m[2][2],
-			}
-		});
+		return new Matrix3x3f().set(
+			m00 - m1.m00, m01 - m1.m01, m02 - m1.m02,
+			m10 - m1.m10, m11 - m1.m11, m12 - m1.m12,
+			m20 - m1.m20, m21 - m1.m21, m22 - m1.m22
+		);
 	}
 	
 	// Multiplication with another 3x3 matrix
 	public Matrix3x3f mul(Matrix3x3f m1) {
-		return new Matrix3x3f(new float[][] {
-			{
-			this.m[0][0] * m1.m[0][0] +
-			this.m[0][1] * m1.m[1][0] +
-			this.m[0][2] * m1.m[2][0],
-			this.m[0][0] * m1.m[0][1] +
-			this.m[0][1] * m1.m[1][1] +
-			this.m[0][2] * m1.m[2][1],
-			this.m[0][0] * m1.m[0][2] +
-			this.m[0][1] * m1.m[1][2] +
-			this.m[0][2] * m1.m[2][2]
-			},
-			{
-			this.m[1][0] * m1.m[0][0] +
-			this.m[1][1] * m1.m[1][0] +
-			this.m[1][2] * m1.m[2][0],
-			this.m[1][0] * m1.m[0][1] +
-			this.m[1][1] * m1.m[1][1] +
-			this.m[1][2] * m1.m[2][1],
-			this.m[1][0] * m1.m[0][2] +
-			this.m[1][1] * m1.m[1][2] +
-			this.m[1][2] * m1.m[2][2]
-			},
-			{
-			this.m[2][0] * m1.m[0][0] +
-			this.m[2][1] * m1.m[1][0] +
-			this.m[2][2] * m1.m[2][0],
-			this.m[2][0] * m1.m[0][1] +
-			this.m[2][1] * m1.m[1][1] +
-			this.m[2][2] * m1.m[2][1],
-			this.m[2][0] * m1.m[0][2] +
-			this.m[2][1] * m1.m[1][2] +
-			this.m[2][2] * m1.m[2][2]
+		return mulInto(m1, new Matrix3x3f());
+	}
+	
+	// Same as mul() but this matrix gets replaced with the result. Useful for building a transformation
+	// chain without creating a new matrix for every step
+	public Matrix3x3f mulLocal(Matrix3x3f m1) {
+		return mulInto(m1, this);
+	}
+	
+	// Multiplies this matrix with m1 and writes the result into dest. dest can be 'this' or m1, since all the
+	// values are read into locals before anything is written
+	public Matrix3x3f mulInto(Matrix3x3f m1, Matrix3x3f dest) {
+		float r00 = m00 * m1.m00 + m01 * m1.m10 + m02 * m1.m20;
+		float r01 = m00 * m1.m01 + m01 * m1.m11 + m02 * m1.m21;
+		float r02 = m00 * m1.m02 + m01 * m1.m12 + m02 * m1.m22;
+		float r10 = m10 * m1.m00 + m11 * m1.m10 + m12 * m1.m20;
+		float r11 = m10 * m1.m01 + m11 * m1.m11 + m12 * m1.m21;
+		float r12 = m10 * m1.m02 + m11 * m1.m12 + m12 * m1.m22;
+		float r20 = m20 * m1.m00 + m21 * m1.m10 + m22 * m1.m20;
+		float r21 = m20 * m1.m01 + m21 * m1.m11 + m22 * m1.m21;
+		float r22 = m20 * m1.m02 + m21 * m1.m12 + m22 * m1.m22;
+		
+		return dest.set(r00, r01, r02,
+				r10, r11, r12,
+				r20, r21, r22);
+	}
+	
+	public float determinant() {
+		return m00 * (m11 * m22 - m12 * m21)
+				- m01 * (m10 * m22 - m12 * m20)
+				+ m02 * (m10 * m21 - m11 * m20);
+	}
+	
+	// True if the third column is (0, 0, 1), which is the case for any combination of translate, scale, shear and rotate
+	public boolean isAffine() {
+		return m02 == 0.0f && m12 == 0.0f && m22 == 1.0f;
+	}
+	
+	public Matrix3x3f inverse() {
+		return invertInto(new Matrix3x3f());
+	}
+	
+	// Writes the inverse into dest. The inverse is cached, so calling this again on an unchanged matrix only copies
+	// nine floats. Throws ArithmeticException if the matrix is singular
+	public Matrix3x3f invertInto(Matrix3x3f dest) {
+		return dest.set(cachedInverse());
+	}
+	
+	// Transforms vec with the inverse of this matrix, e.g. to bring a mouse position back into an object's
+	// local space. Uses the cached inverse, so repeated picking against the same matrix costs one transform
+	public Vector2f inverseTransformInto(Vector2f src, Vector2f dest) {
+		return cachedInverse().transformInto(src, dest);
+	}
+	
+	private Matrix3x3f cachedInverse() {
+		if(!inverseValid) {
+			if(inverse == null) {
+				inverse = new Matrix3x3f();
+			}
+			
+			if(isAffine()) {
+				invertAffine(inverse);
+			} else {
+				invertGeneral(inverse);
 			}
-		});
+			inverseValid = true;
+		}
+		
+		return inverse;
+	}
+	
+	// For an affine matrix, only the 2x2 part needs a real inverse. The translation is then pushed back through it
+	private void invertAffine(Matrix3x3f dest) {
+		float det = m00 * m11 - m01 * m10;
+		checkDeterminant(det);
+		
+		float invDet = 1.0f / det;
+		float i00 = m11 * invDet;
+		float i01 = -m01 * invDet;
+		float i10 = -m10 * invDet;
+		float i11 = m00 * invDet;
+		
+		dest.set(i00, i01, 0.0f,
+				i10, i11, 0.0f,
+				-(m20 * i00 + m21 * i10), -(m20 * i01 + m21 * i11), 1.0f);
+	}
+	
+	// Adjugate divided by the determinant
+	private void invertGeneral(Matrix3x3f dest) {
+		float c00 = m11 * m22 - m12 * m21;
+		float c01 = m12 * m20 - m10 * m22;
+		float c02 = m10 * m21 - m11 * m20;
+		
+		float det = m00 * c00 + m01 * c01 + m02 * c02;
+		checkDeterminant(det);
+		
+		float invDet = 1.0f / det;
+		dest.set(c00 * invDet, (m02 * m21 - m01 * m22) * invDet, (m01 * m12 - m02 * m11) * invDet,
+				c01 * invDet, (m00 * m22 - m02 * m20) * invDet, (m02 * m10 - m00 * m12) * invDet,
+				c02 * invDet, (m01 * m20 - m00 * m21) * invDet, (m00 * m11 - m01 * m10) * invDet);
+	}
+	
+	private static void checkDeterminant(float det) {
+		if(det == 0.0f || Float.isNaN(det) || Float.isInfinite(det)) {
+			throw new ArithmeticException("Matrix is not invertible (determinant: " + det + ")");
+		}
 	}
 	
 	// Note: For multiplication with a vector, we're using the row major format.
 	// It can be also done in column major format where we use a 3x1 vector shape. But then, we have to reverse the order of the different operations to get the same result
 	// For instance, translate then rotate will become rotate and then translate.
 	public Vector2f mul(Vector2f vec) {
-		return new Vector2f(
-				vec.x * this.m[0][0] +
-				vec.y * this.m[1][0] +
-				vec.w * this.m[2][0],
-				vec.x * this.m[0][1] +
-				vec.y * this.m[1][1] +
-				vec.w * this.m[2][1],
-				vec.x * this.m[0][2] +
-				vec.y * this.m[1][2] +
-				vec.w * this.m[2][2]
-		);
+		return transformInto(vec, new Vector2f());
+	}
+	
+	// Transforms src and writes the result into dest without allocating anything. src and dest can be the same vector
+	public Vector2f transformInto(Vector2f src, Vector2f dest) {
+		float x = src.x * m00 + src.y * m10 + src.w * m20;
+		float y = src.x * m01 + src.y * m11 + src.w * m21;
+		float w = src.x * m02 + src.y * m12 + src.w * m22;
+		
+		dest.x = x;
+		dest.y = y;
+		dest.w = w;
+		return dest;
+	}
+	
+	// Bulk version of transformInto() for points stored as separate x and y arrays (See Vector2fBuffer).
+	// Transforms count points starting at offset and writes them at the same indices of outXs and outYs.
+	// All the points are assumed to have w = 1 and the matrix is assumed to be affine (Third column is 0, 0, 1), which is
+	// true for every matrix built from translate, scale, shear and rotate. The output arrays can be the same as the input arrays
+	public void transform(float[] xs, float[] ys, float[] outXs, float[] outYs, int offset, int count) {
+		// Copying the fields into locals lets the JIT keep them in registers for the whole loop
+		float a = m00, b = m01;
+		float c = m10, d = m11;
+		float tx = m20, ty = m21;
+		
+		int end = offset + count;
+		for(int i = offset; i < end; i++) {
+			float x = xs[i];
+			float y = ys[i];
+			outXs[i] = x * a + y * c + tx;
+			outYs[i] = x * b + y * d + ty;
+		}
 	}
-
 	
 	public static Matrix3x3f zero() {
-		return new Matrix3x3f(new float[][] {
-			{0.0f, 0.0f, 0.0f},
-			{0.0f, 0.0f, 0.0f},
-			{0.0f, 0.0f, 0.0f}
-		});
+		return new Matrix3x3f().setZero();
 	}
 	
 	public static Matrix3x3f identity() {
-		return new Matrix3x3f(new float[][] {
-			{1.0f, 0.0f, 0.0f},
-			{0.0f, 1.0f, 0.0f},
-			{0.0f, 0.0f, 1.0f}
-		});
+		return new Matrix3x3f().setIdentity();
 	}
 	
 	public static Matrix3x3f translate(Vector2f v) {
@@ -131,11 +276,7 @@ public class Matrix3x3f {
 	}
 	
 	public static Matrix3x3f translate(float x, float y) {
-		return new Matrix3x3f(new float[][] {
-			{1.0f, 0.0f, 0.0f},
-			{0.0f, 1.0f, 0.0f},
-			{	x,	y, 1.0f}
-		});
+		return new Matrix3x3f().setTranslate(x, y);
 	}
 	
 	public static Matrix3x3f scale(Vector2f v) {
@@ -143,11 +284,7 @@ public class Matrix3x3f {
 	}
 	
 	public static Matrix3x3f scale(float x, float y) {
-		return new Matrix3x3f(new float[][] {
-			{	x, 0.0f, 0.0f},
-			{0.0f,	y, 0.0f},
-			{0.0f, 0.0f, 1.0f}
-		});
+		return new Matrix3x3f().setScale(x, y);
 	}
 	
 	public static Matrix3x3f shear(Vector2f v) {
@@ -155,19 +292,11 @@ public class Matrix3x3f {
 	}
 	
 	public static Matrix3x3f shear(float x, float y) {
-		return new Matrix3x3f(new float[][] {
-			{1.0f,	y, 0.0f},
-			{	x, 1.0f, 0.0f},
-			{0.0f, 0.0f, 1.0f}
-		});
+		return new Matrix3x3f().setShear(x, y);
 	}
 	
 	public static Matrix3x3f rotate(float rad) {
-		return new Matrix3x3f(new float[][] {
-			{(float) Math.cos(rad), (float) Math.sin(rad), 0.0f},
-			{(float) -Math.sin(rad), (float) Math.cos(rad), 0.0f},
-			{					0.0f,					0.0f, 1.0f}
-		});
+		return new Matrix3x3f().setRotate(rad);
 	}
 	
 	@Override
@@ -175,11 +304,11 @@ public class Matrix3x3f {
 		StringBuilder sb = new StringBuilder();
 		for(int i = 0; i < 3; i++) {
 			sb.append("[");
-			sb.append(m[i][0]);
+			sb.append(get(i, 0));
 			sb.append(",\t");
-			sb.append(m[i][1]);
+			sb.append(get(i, 1));
 			sb.append(",\t");
-			sb.append(m[i][2]);
+			sb.append(get(i, 2));
 			sb.append("]\n");
 		}
 		
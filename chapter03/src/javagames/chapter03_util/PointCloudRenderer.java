@@ -0,0 +1,131 @@
+package javagames.chapter03_util;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/*
+ * Plots large numbers of single pixel points by writing them straight into the int[] pixels of a BufferedImage,
+ * which is then drawn with one drawImage(). Drawing every point with fillRect(x, y, 1, 1) goes through the whole
+ * Java2D pipeline once per point, which caps us at a few ten thousand points per frame.
+ *
+ * Usage per frame: begin() clears the image, plot() the point sets (one colour per set), then draw() it.
+ * Points outside the image are clipped. Coordinates are truncated like the (int) casts in front of fillRect().
+ * Points overwrite each other, there's no blending between them. Static point sets (e.g. a star field) can
+ * be plotted once and drawn every frame.
+ *
+ * Not thread safe. Keep one renderer per rendering thread
+ * */
+public class PointCloudRenderer {
+	private BufferedImage image;
+	private int[] pixels;
+	private int width, height;
+	
+	// Clears the image, and creates it if this is the first call or the size changed (e.g. the canvas was resized).
+	// An empty size (e.g. a minimized window, or a canvas that isn't laid out yet) is fine: the frame's plot() and
+	// draw() calls then do nothing
+	public void begin(int width, int height) {
+		if(width <= 0 || height <= 0) {
+			image = null;
+			pixels = null;
+			this.width = 0;
+			this.height = 0;
+			return;
+		}
+		
+		if(image == null || width != this.width || height != this.height) {
+			// Premultiplied alpha is the format Java2D can composite the fastest
+			image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+			pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+			this.width = width;
+			this.height = height;
+		} else {
+			Arrays.fill(pixels, 0);
+		}
+	}
+	
+	public void plot(float[] xs, float[] ys, int offset, int count, Color color) {
+		plot(xs, ys, offset, count, color.getRGB());
+	}
+	
+	// argb is a packed colour like Color.getRGB()
+	public void plot(float[] xs, float[] ys, int offset, int count, int argb) {
+		if(pixels == null) {
+			return;
+		}
+		
+		int pixel = premultiply(argb);
+		int end = offset + count;
+		for(int i = offset; i < end; i++) {
+			// Compare the floats, so that huge values can't wrap around when cast to int. The truncation rounds
+			// -0.5 to 0, which is also what fillRect((int) x, ...) drew
+			float x = xs[i];
+			float y = ys[i];
+			if(x > -1.0f && x < width && y > -1.0f && y < height) {
+				pixels[(int) y * width + (int) x] = pixel;
+			}
+		}
+	}
+	
+	public void plot(Vector2fBuffer points, Color color) {
+		plot(points.getXs(), points.getYs(), 0, points.size(), color.getRGB());
+	}
+	
+	public void plot(int[] xs, int[] ys, int offset, int count, int argb) {
+		if(pixels == null) {
+			return;
+		}
+		
+		int pixel = premultiply(argb);
+		int end = offset + count;
+		for(int i = offset; i < end; i++) {
+			int x = xs[i];
+			int y = ys[i];
+			// One unsigned comparison per axis covers both x < 0 and x >= width
+			if(Integer.compareUnsigned(x, width) < 0 && Integer.compareUnsigned(y, height) < 0) {
+				pixels[y * width + x] = pixel;
+			}
+		}
+	}
+	
+	// For points stored as x0, y0, x1, y1, ... in a single array
+	public void plotInterleaved(int[] xys, int pointCount, Color color) {
+		if(pixels == null) {
+			return;
+		}
+		
+		int pixel = premultiply(color.getRGB());
+		for(int i = 0; i < pointCount * 2; i += 2) {
+			int x = xys[i];
+			int y = xys[i + 1];
+			if(Integer.compareUnsigned(x, width) < 0 && Integer.compareUnsigned(y, height) < 0) {
+				pixels[y * width + x] = pixel;
+			}
+		}
+	}
+	
+	// Draws the plotted points with their top left corner at (x, y)
+	public void draw(Graphics g, int x, int y) {
+		if(image != null) {
+			g.drawImage(image, x, y, null);
+		}
+	}
+	
+	public void draw(Graphics g) {
+		draw(g, 0, 0);
+	}
+	
+	private static int premultiply(int argb) {
+		int a = argb >>> 24;
+		if(a == 255) {
+			return argb;
+		}
+		
+		int r = ((argb >> 16) & 0xFF) * a / 255;
+		int g = ((argb >> 8) & 0xFF) * a / 255;
+		int b = (argb & 0xFF) * a / 255;
+		return (a << 24) | (r << 16) | (g << 8) | b;
+	}
+}
@@ -0,0 +1,120 @@
+package javagames.chapter03_util;
+
+import java.awt.Graphics;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Draws polygon outlines with one Graphics call per polygon instead of one drawLine() per edge. Every Graphics call
+ * goes through the Java2D pipeline's state validation, which costs far more than the line itself, so wireframes with
+ * many small edges spend most of their time there.
+ *
+ * The screen coordinates are truncated into reusable int arrays, the same way the old (int) casts per edge did, and
+ * submitted with drawPolygon()/drawPolyline(), which draw exactly the same pixels as the drawLine() per edge. The
+ * drawPolygons() methods draw many polygons from one array or buffer. Nothing is allocated once the buffers have
+ * grown big enough.
+ *
+ * Keep one renderer per rendering thread
+ * */
+public class PolygonRenderer {
+	private static final int DEFAULT_CAPACITY = 16;
+	
+	private int[] xs = new int[DEFAULT_CAPACITY];
+	private int[] ys = new int[DEFAULT_CAPACITY];
+	
+	// Closed outline through all the points, like Graphics.drawPolygon()
+	public void drawPolygon(Graphics g, Vector2f[] polygon) {
+		g.drawPolygon(xs, ys, fill(polygon));
+	}
+	
+	public void drawPolygon(Graphics g, List<Vector2f> polygon) {
+		g.drawPolygon(xs, ys, fill(polygon));
+	}
+	
+	// count points starting at offset of the two coordinate arrays (See Vector2fBuffer)
+	public void drawPolygon(Graphics g, float[] pointXs, float[] pointYs, int offset, int count) {
+		g.drawPolygon(xs, ys, fill(pointXs, pointYs, offset, count));
+	}
+	
+	public void drawPolygon(Graphics g, Vector2fBuffer polygon) {
+		drawPolygon(g, polygon.getXs(), polygon.getYs(), 0, polygon.size());
+	}
+	
+	// Open line strip. The last point isn't connected back to the first one
+	public void drawPolyline(Graphics g, Vector2f[] points) {
+		g.drawPolyline(xs, ys, fill(points));
+	}
+	
+	public void drawPolyline(Graphics g, float[] pointXs, float[] pointYs, int offset, int count) {
+		g.drawPolyline(xs, ys, fill(pointXs, pointYs, offset, count));
+	}
+	
+	// Draws all the polygons, each with one drawPolygon() call. A single Path2D for all of them would be one call less
+	// per polygon, but a stroked shape is rasterized differently from drawLine()/drawPolygon(), so the outlines would change
+	public void drawPolygons(Graphics g, Vector2f[][] polygons) {
+		for(Vector2f[] polygon : polygons) {
+			if(polygon.length > 0) {
+				drawPolygon(g, polygon);
+			}
+		}
+	}
+	
+	// Draws polygonCount polygons stored one after the other in 'points'. sizes[i] is the number of points of polygon i.
+	// This is the cheapest way to draw a large wireframe: transform everything with Vector2fBuffer.transform(), then draw it from the buffer
+	public void drawPolygons(Graphics g, Vector2fBuffer points, int[] sizes, int polygonCount) {
+		int total = 0;
+		for(int i = 0; i < polygonCount; i++) {
+			total += sizes[i];
+		}
+		if(total > points.size()) {
+			throw new IndexOutOfBoundsException("The polygons need " + total + " points, the buffer has " + points.size());
+		}
+		
+		float[] pointXs = points.getXs();
+		float[] pointYs = points.getYs();
+		int offset = 0;
+		for(int i = 0; i < polygonCount; i++) {
+			if(sizes[i] > 0) {
+				drawPolygon(g, pointXs, pointYs, offset, sizes[i]);
+			}
+			offset += sizes[i];
+		}
+	}
+	
+	private int fill(Vector2f[] polygon) {
+		ensureCapacity(polygon.length);
+		for(int i = 0; i < polygon.length; i++) {
+			xs[i] = (int) polygon[i].x;
+			ys[i] = (int) polygon[i].y;
+		}
+		return polygon.length;
+	}
+	
+	private int fill(List<Vector2f> polygon) {
+		ensureCapacity(polygon.size());
+		int i = 0;
+		for(Vector2f p : polygon) {
+			xs[i] = (int) p.x;
+			ys[i] = (int) p.y;
+			i++;
+		}
+		return i;
+	}
+	
+	private int fill(float[] pointXs, float[] pointYs, int offset, int count) {
+		ensureCapacity(count);
+		for(int i = 0; i < count; i++) {
+			xs[i] = (int) pointXs[offset + i];
+			ys[i] = (int) pointYs[offset + i];
+		}
+		return count;
+	}
+	
+	private void ensureCapacity(int capacity) {
+		if(capacity > xs.length) {
+			int newCapacity = Math.max(capacity, xs.length * 2);
+			xs = Arrays.copyOf(xs, newCapacity);
+			ys = Arrays.copyOf(ys, newCapacity);
+		}
+	}
+}
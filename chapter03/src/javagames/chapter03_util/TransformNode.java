@@ -0,0 +1,160 @@
+package javagames.chapter03_util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * A node in a transformation hierarchy (Scene graph). Each node has its own scale, rotation and translation
+ * relative to its parent, just like the earth orbits the sun and the moon orbits the earth.
+ * 
+ * The world transformation (local * parent's world) is cached. Changing a node marks it and its descendants
+ * as dirty, and the world transformation is only recomputed the next time someone asks for it. So nodes
+ * that don't move cost nothing per frame, no matter how deep they sit in the hierarchy
+ * */
+public class TransformNode {
+	private float tx, ty;
+	private float rotation;
+	private float sx = 1.0f, sy = 1.0f;
+	
+	private final Affine2f local = new Affine2f();
+	private final Affine2f world = new Affine2f();
+	private boolean localDirty = true;
+	private boolean worldDirty = true;
+	
+	private TransformNode parent;
+	private final List<TransformNode> children = new ArrayList<>();
+	private final List<TransformNode> readOnlyChildren = Collections.unmodifiableList(children);
+	
+	public TransformNode() {}
+	
+	public TransformNode(float tx, float ty, float rotation, float sx, float sy) {
+		this.tx = tx;
+		this.ty = ty;
+		this.rotation = rotation;
+		this.sx = sx;
+		this.sy = sy;
+	}
+	
+	public void setTranslation(float tx, float ty) {
+		this.tx = tx;
+		this.ty = ty;
+		markLocalDirty();
+	}
+	
+	public void setRotation(float rad) {
+		this.rotation = rad;
+		markLocalDirty();
+	}
+	
+	public void setScale(float sx, float sy) {
+		this.sx = sx;
+		this.sy = sy;
+		markLocalDirty();
+	}
+	
+	public float getTranslationX() {
+		return tx;
+	}
+	
+	public float getTranslationY() {
+		return ty;
+	}
+	
+	public float getRotation() {
+		return rotation;
+	}
+	
+	public float getScaleX() {
+		return sx;
+	}
+	
+	public float getScaleY() {
+		return sy;
+	}
+	
+	public TransformNode getParent() {
+		return parent;
+	}
+	
+	public List<TransformNode> getChildren() {
+		return readOnlyChildren;
+	}
+	
+	// Moves the child under this node. If it already had a parent, it's removed from there first
+	public void addChild(TransformNode child) {
+		for(TransformNode node = this; node != null; node = node.parent) {
+			if(node == child) {
+				throw new IllegalArgumentException("A node can't be added under itself or its own descendant");
+			}
+		}
+		
+		if(child.parent != null) {
+			child.parent.children.remove(child);
+		}
+		
+		child.parent = this;
+		children.add(child);
+		child.markWorldDirty();
+	}
+	
+	public void removeChild(TransformNode child) {
+		if(child.parent == this) {
+			children.remove(child);
+			child.parent = null;
+			child.markWorldDirty();
+		}
+	}
+	
+	// The transformation relative to the parent. Don't modify the returned object
+	public Affine2f getLocalTransform() {
+		if(localDirty) {
+			local.setTRS(tx, ty, rotation, sx, sy);
+			localDirty = false;
+		}
+		
+		return local;
+	}
+	
+	// The transformation relative to the world (Root). Don't modify the returned object
+	public Affine2f getWorldTransform() {
+		if(worldDirty) {
+			if(parent == null) {
+				world.set(getLocalTransform());
+			} else {
+				getLocalTransform().mulInto(parent.getWorldTransform(), world);
+			}
+			worldDirty = false;
+		}
+		
+		return world;
+	}
+	
+	public Matrix3x3f getWorldMatrix(Matrix3x3f dest) {
+		return getWorldTransform().toMatrix(dest);
+	}
+	
+	// The origin of this node in world co-ordinates
+	public Vector2f getWorldPosition(Vector2f dest) {
+		Affine2f w = getWorldTransform();
+		return dest.set(w.m20, w.m21);
+	}
+	
+	private void markLocalDirty() {
+		localDirty = true;
+		markWorldDirty();
+	}
+	
+	// A node that is already dirty has dirty descendants as well, so we can stop there. That keeps
+	// repeated changes to the same branch in a single frame cheap
+	private void markWorldDirty() {
+		if(worldDirty) {
+			return;
+		}
+		
+		worldDirty = true;
+		for(int i = 0; i < children.size(); i++) {
+			children.get(i).markWorldDirty();
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package javagames.chapter03_util;
+
+/*
+ * Sine and cosine used by the rotation code in this package. In EXACT mode (The default) it just calls
+ * java.lang.Math. In TABLE mode the values come from a precomputed sine table with linear interpolation
+ * between the entries, which is a lot cheaper and accurate to within MAX_TABLE_ERROR. That is far below
+ * anything visible on the screen but not bit-for-bit the same as Math, so it is opt-in.
+ * */
+public final class Trig {
+	
+	public enum Mode {
+		EXACT,
+		TABLE
+	}
+	
+	// Largest absolute difference from Math.sin()/Math.cos() in TABLE mode. With 4096 entries the
+	// interpolation error is at most (2PI/4096)^2 / 8, about 3e-7, plus float rounding
+	public static final float MAX_TABLE_ERROR = 1.0e-6f;
+	
+	private static final int TABLE_SIZE = 4096; // Must be a power of 2 so that we can wrap with a mask
+	private static final int TABLE_MASK = TABLE_SIZE - 1;
+	private static final int QUARTER_TURN = TABLE_SIZE / 4; // cos(x) = sin(x + PI/2)
+	// The index is computed in double since a float index loses the fractional precision we need for
+	// interpolation once the angle grows past a couple of turns
+	private static final double RAD_TO_INDEX = TABLE_SIZE / (2.0 * Math.PI);
+	// Beyond this even the angle itself is too coarse to be worth a lookup, so we fall back to Math
+	private static final float MAX_TABLE_ANGLE = 1.0e5f;
+	
+	// One extra entry so that interpolating from the last entry doesn't need a wrap
+	private static final float[] SIN_TABLE = new float[TABLE_SIZE + 1];
+	
+	static {
+		for(int i = 0; i <= TABLE_SIZE; i++) {
+			SIN_TABLE[i] = (float) Math.sin(i * 2.0 * Math.PI / TABLE_SIZE);
+		}
+	}
+	
+	private static volatile Mode mode = Mode.EXACT;
+	
+	private Trig() {}
+	
+	// Meant to be called once at startup, before the game loop starts
+	public static void setMode(Mode mode) {
+		Trig.mode = mode;
+	}
+	
+	public static Mode getMode() {
+		return mode;
+	}
+	
+	public static float sin(float rad) {
+		if(mode == Mode.TABLE && Math.abs(rad) < MAX_TABLE_ANGLE) {
+			return lookup(rad * RAD_TO_INDEX);
+		}
+		return (float) Math.sin(rad);
+	}
+	
+	public static float cos(float rad) {
+		if(mode == Mode.TABLE && Math.abs(rad) < MAX_TABLE_ANGLE) {
+			return lookup(rad * RAD_TO_INDEX + QUARTER_TURN);
+		}
+		return (float) Math.cos(rad);
+	}
+	
+	// Computes both values in one call and stores them in dest as (cos, sin), which is the unit vector
+	// pointing at the angle. In TABLE mode the index math is only done once for both values
+	public static Vector2f sincos(float rad, Vector2f dest) {
+		if(mode == Mode.TABLE && Math.abs(rad) < MAX_TABLE_ANGLE) {
+			double index = rad * RAD_TO_INDEX;
+			double floor = Math.floor(index);
+			float frac = (float) (index - floor);
+			int i = (int) floor;
+			
+			return dest.set(
+					interpolate((i + QUARTER_TURN) & TABLE_MASK, frac),
+					interpolate(i & TABLE_MASK, frac)
+			);
+		}
+		return dest.set((float) Math.cos(rad), (float) Math.sin(rad));
+	}
+	
+	private static float lookup(double index) {
+		double floor = Math.floor(index);
+		return interpolate((int) floor & TABLE_MASK, (float) (index - floor));
+	}
+	
+	private static float interpolate(int i, float frac) {
+		float a = SIN_TABLE[i];
+		return a + (SIN_TABLE[i + 1] - a) * frac;
+	}
+}
@@ -27,6 +27,23 @@ public class Vector2f {
 		this.w = w;
 	}
 	
+	// Sets the co-ordinates and resets w to 1 (A point), just like the (x, y) constructor does.
+	// All the in-place and destination operations below go through this method, so they produce
+	// exactly the same result as their allocating versions
+	public Vector2f set(float x, float y) {
+		this.x = x;
+		this.y = y;
+		this.w = 1.0f;
+		return this;
+	}
+	
+	public Vector2f set(Vector2f v) {
+		this.x = v.x;
+		this.y = v.y;
+		this.w = v.w;
+		return this;
+	}
+	
 	public void translate(float tx, float ty) {
 		x += tx;
 		y += ty;
@@ -38,8 +55,10 @@ public class Vector2f {
 	}
 	
 	public void rotate(float rad) {
-		float tmp = (float) (x * Math.cos(rad) - y * Math.sin(rad));
-		y = (float) (x * Math.sin(rad) + y * Math.cos(rad));
+		float cos = Trig.cos(rad);
+		float sin = Trig.sin(rad);
+		float tmp = x * cos - y * sin;
+		y = x * sin + y * cos;
 		x = tmp;
 	}
 	
@@ -72,6 +91,66 @@ public class Vector2f {
 		return new Vector2f(-x, -y);
 	}
 	
+	// In-place versions of the operations above. They modify this vector instead of creating a new one
+	// and return 'this' so that they can be chained. e.g. v.subLocal(a).normLocal()
+	public Vector2f addLocal(Vector2f v) {
+		return set(x + v.x, y + v.y);
+	}
+	
+	public Vector2f subLocal(Vector2f v) {
+		return set(x - v.x, y - v.y);
+	}
+	
+	public Vector2f scaleLocal(float scalar) {
+		return set(scalar * x, scalar * y);
+	}
+	
+	public Vector2f divLocal(float scalar) {
+		return set(x / scalar, y / scalar);
+	}
+	
+	public Vector2f invLocal() {
+		return set(-x, -y);
+	}
+	
+	public Vector2f normLocal() {
+		return divLocal(len());
+	}
+	
+	public Vector2f perpendicularLocal() {
+		return set(-y, x);
+	}
+	
+	// Destination versions of the operations. The result is written into dest, which is also returned.
+	// dest can be this vector or the argument vector
+	public Vector2f add(Vector2f v, Vector2f dest) {
+		return dest.set(x + v.x, y + v.y);
+	}
+	
+	public Vector2f sub(Vector2f v, Vector2f dest) {
+		return dest.set(x - v.x, y - v.y);
+	}
+	
+	public Vector2f mul(float scalar, Vector2f dest) {
+		return dest.set(scalar * x, scalar * y);
+	}
+	
+	public Vector2f div(float scalar, Vector2f dest) {
+		return dest.set(x / scalar, y / scalar);
+	}
+	
+	public Vector2f inv(Vector2f dest) {
+		return dest.set(-x, -y);
+	}
+	
+	public Vector2f norm(Vector2f dest) {
+		return div(len(), dest);
+	}
+	
+	public Vector2f perpendicular(Vector2f dest) {
+		return dest.set(-y, x);
+	}
+	
 	// Returns the length of the vector
 	public float len() {
 		return (float)Math.sqrt((x*x) + (y*y));
@@ -99,10 +178,11 @@ public class Vector2f {
 	}
 	
 	public static Vector2f polarToCartesian(float angle, float radius) {
-		return new Vector2f(
-				radius * (float)Math.cos(angle),
-				radius * (float)Math.sin(angle)
-		);
+		return polarToCartesian(angle, radius, new Vector2f());
+	}
+	
+	public static Vector2f polarToCartesian(float angle, float radius, Vector2f dest) {
+		return Trig.sincos(angle, dest).scaleLocal(radius);
 	}
 	
 	@Override
@@ -0,0 +1,107 @@
+package javagames.chapter03_util;
+
+import java.util.Arrays;
+
+/*
+ * A growable list of 2D points stored as two primitive arrays (x and y) instead of an array of Vector2f objects.
+ * Adding points doesn't allocate once the buffer has grown big enough, and the whole buffer can be
+ * transformed in a single tight loop through Matrix3x3f.transform(). Clear and refill it every frame
+ * instead of creating a new one
+ * */
+public class Vector2fBuffer {
+	private static final int DEFAULT_CAPACITY = 16;
+	
+	private float[] xs;
+	private float[] ys;
+	private int size;
+	
+	public Vector2fBuffer() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	public Vector2fBuffer(int capacity) {
+		xs = new float[capacity];
+		ys = new float[capacity];
+	}
+	
+	public void add(float x, float y) {
+		if(size == xs.length) {
+			ensureCapacity(Math.max(DEFAULT_CAPACITY, size * 2));
+		}
+		
+		xs[size] = x;
+		ys[size] = y;
+		size++;
+	}
+	
+	public void add(Vector2f v) {
+		add(v.x, v.y);
+	}
+	
+	public void set(int index, float x, float y) {
+		checkIndex(index);
+		xs[index] = x;
+		ys[index] = y;
+	}
+	
+	public float getX(int index) {
+		checkIndex(index);
+		return xs[index];
+	}
+	
+	public float getY(int index) {
+		checkIndex(index);
+		return ys[index];
+	}
+	
+	// Copies the point at index into dest
+	public Vector2f get(int index, Vector2f dest) {
+		checkIndex(index);
+		return dest.set(xs[index], ys[index]);
+	}
+	
+	// Removes all the points but keeps the arrays, so refilling the buffer doesn't allocate
+	public void clear() {
+		size = 0;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public int capacity() {
+		return xs.length;
+	}
+	
+	public void ensureCapacity(int capacity) {
+		if(capacity > xs.length) {
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+		}
+	}
+	
+	// The backing arrays. Only the first size() elements are valid. Note that the arrays are replaced
+	// when the buffer grows, so don't hold on to them across add() calls
+	public float[] getXs() {
+		return xs;
+	}
+	
+	public float[] getYs() {
+		return ys;
+	}
+	
+	// Transforms every point in this buffer with the matrix and stores the result in dest.
+	// dest is resized to match this buffer. dest can be this buffer as well
+	public Vector2fBuffer transform(Matrix3x3f m, Vector2fBuffer dest) {
+		dest.ensureCapacity(size);
+		m.transform(xs, ys, dest.xs, dest.ys, 0, size);
+		dest.size = size;
+		return dest;
+	}
+	
+	private void checkIndex(int index) {
+		if(index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+}
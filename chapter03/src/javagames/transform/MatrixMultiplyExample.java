@@ -14,7 +14,8 @@ import javax.swing.SwingUtilities;
 
 import javagames.chapter01_util.FrameRate;
 import javagames.chapter02_util.KeyboardInput;
-import javagames.chapter03_util.Matrix3x3f;
+import javagames.chapter03_util.PointCloudRenderer;
+import javagames.chapter03_util.TransformNode;
 import javagames.chapter03_util.Vector2f;
 
 public class MatrixMultiplyExample extends JFrame implements Runnable {
@@ -32,8 +33,17 @@ public class MatrixMultiplyExample extends JFrame implements Runnable {
 	
 	private boolean showStars;
 	private int[] starCoords;
+	private PointCloudRenderer starField; // The stars never move, so they're plotted once and drawn with a single drawImage()
 	private Random rand;
 	
+	// The sun -> earth -> moon hierarchy. The orbit nodes only rotate and the planet nodes are translated
+	// away from their orbit's center, which is the same as the translate-then-rotate chains we would
+	// otherwise multiply by hand every frame. The sun never moves, so its transformation is only computed once
+	private TransformNode sunNode;
+	private TransformNode earthOrbitNode, earthNode;
+	private TransformNode moonOrbitNode, moonNode;
+	private Vector2f sun, earth, moon;
+	
 	public MatrixMultiplyExample() {
 		rand = new Random();
 	}
@@ -84,6 +94,29 @@ public class MatrixMultiplyExample extends JFrame implements Runnable {
 			starCoords[i] = rand.nextInt(SCREEN_W);
 			starCoords[i + 1] = rand.nextInt(SCREEN_H);
 		}
+		
+		starField = new PointCloudRenderer();
+		starField.begin(SCREEN_W, SCREEN_H);
+		starField.plotInterleaved(starCoords, starCoords.length / 2, Color.WHITE);
+		
+		sunNode = new TransformNode();
+		sunNode.setTranslation(SCREEN_W/2, SCREEN_H/2);
+		
+		earthOrbitNode = new TransformNode();
+		sunNode.addChild(earthOrbitNode); // Makes sun the origin
+		earthNode = new TransformNode();
+		earthNode.setTranslation(SCREEN_W/4, 0);
+		earthOrbitNode.addChild(earthNode);
+		
+		moonOrbitNode = new TransformNode();
+		earthNode.addChild(moonOrbitNode); // Makes earth the origin
+		moonNode = new TransformNode();
+		moonNode.setTranslation(30, 0);
+		moonOrbitNode.addChild(moonNode);
+		
+		sun = new Vector2f();
+		earth = new Vector2f();
+		moon = new Vector2f();
 	}
 	
 	private void gameLoop() {
@@ -130,15 +163,11 @@ public class MatrixMultiplyExample extends JFrame implements Runnable {
 		g.drawString("Press [Space] to toggle stars", 20, 35);
 		
 		if(showStars) {
-			g.setColor(Color.WHITE);
-			for(int i = 0; i < starCoords.length - 1; i += 2) {
-				g.fillRect(starCoords[i], starCoords[i+1], 1, 1);
-			}
+			starField.draw(g);
 		}
 		
 		// Drawing the sun
-		Matrix3x3f sunMat = Matrix3x3f.translate(SCREEN_W/2, SCREEN_H/2);
-		Vector2f sun = sunMat.mul(new Vector2f());
+		sunNode.getWorldPosition(sun);
 		
 		g.setColor(Color.YELLOW);
 		g.fillOval((int) sun.x - 50, (int) sun.y - 50, 100, 100);
@@ -148,22 +177,18 @@ public class MatrixMultiplyExample extends JFrame implements Runnable {
 		g.drawOval((int) sun.x - SCREEN_W/4, (int) sun.y - SCREEN_W/4, SCREEN_W/2, SCREEN_W/2);
 		
 		// Drawing the Earth
-		Matrix3x3f earthMat = Matrix3x3f.translate(SCREEN_W/4, 0);
-		earthMat = earthMat.mul(Matrix3x3f.rotate(earthRot));
-		earthMat = earthMat.mul(sunMat); // Makes sun the origin
+		earthOrbitNode.setRotation(earthRot);
 		earthRot += earthRotDelta;
 		
-		Vector2f earth = earthMat.mul(new Vector2f());
+		earthNode.getWorldPosition(earth);
 		g.setColor(Color.BLUE);
 		g.fillOval((int) earth.x - 10, (int) earth.y - 10, 20, 20);
 		
 		// Drawing the Moon
-		Matrix3x3f moonMat = Matrix3x3f.translate(30, 0);
-		moonMat = moonMat.mul(Matrix3x3f.rotate(moonRot));
-		moonMat = moonMat.mul(earthMat); // Makes earth the origin
+		moonOrbitNode.setRotation(moonRot);
 		moonRot += moonRotDelta;
 		
-		Vector2f moon = moonMat.mul(new Vector2f());
+		moonNode.getWorldPosition(moon);
 		g.setColor(Color.LIGHT_GRAY);
 		g.fillOval((int) moon.x - 5, (int) moon.y - 5, 10, 10);
 	}
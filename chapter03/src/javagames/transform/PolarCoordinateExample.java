@@ -15,6 +15,7 @@ import javax.swing.SwingUtilities;
 import javagames.chapter01_util.FrameRate;
 import javagames.chapter02_util.KeyboardInput;
 import javagames.chapter02_util.RelativeMouseInput;
+import javagames.chapter03_util.Vector2f;
 
 public class PolarCoordinateExample extends JFrame implements Runnable {
 	
@@ -29,6 +30,7 @@ public class PolarCoordinateExample extends JFrame implements Runnable {
 	private KeyboardInput keyboardInput;
 	
 	private Point coOrd;
+	private Vector2f cartesianCoOrd; // Reused every frame
 	
 	public PolarCoordinateExample() {
 		
@@ -78,6 +80,7 @@ public class PolarCoordinateExample extends JFrame implements Runnable {
 		frameRate.initialize();
 		
 		coOrd = new Point();
+		cartesianCoOrd = new Vector2f();
 	}
 	
 	private void gameLoop() {
@@ -146,8 +149,9 @@ public class PolarCoordinateExample extends JFrame implements Runnable {
 			degrees = 360 + degrees;
 		}
 		
-		double sx = r * Math.cos(rad); // Converted cartesian x
-		double sy = r * Math.sin(rad); // Converted cartesian y
+		Vector2f.polarToCartesian((float) rad, (float) r, cartesianCoOrd);
+		double sx = cartesianCoOrd.x; // Converted cartesian x
+		double sy = cartesianCoOrd.y; // Converted cartesian y
 		// \u00b0 is the degree sign in unicode
 		String polar = String.format("(%.0f, %.0f\u00b0)", r, degrees);
 		g.drawString(polar, 20, 60);
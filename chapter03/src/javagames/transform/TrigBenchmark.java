@@ -0,0 +1,72 @@
+package javagames.transform;
+
+import javagames.chapter03_util.Trig;
+import javagames.chapter03_util.Vector2f;
+
+/*
+ * Checks the accuracy of the Trig sine table against java.lang.Math and measures how much faster
+ * it is. No window is opened
+ * */
+public class TrigBenchmark {
+	private static final int ANGLES = 4096;
+	private static final int WARMUP_ROUNDS = 2000;
+	private static final int ROUNDS = 20000;
+	
+	private static float sink; // Keeps the JIT from throwing the results away
+	
+	public static void main(String[] args) {
+		float[] angles = new float[ANGLES];
+		for(int i = 0; i < ANGLES; i++) {
+			angles[i] = (float) ((i * 0.7919) % (4.0 * Math.PI) - 2.0 * Math.PI);
+		}
+		
+		checkAccuracy();
+		
+		Trig.setMode(Trig.Mode.EXACT);
+		double exact = measure("Math", angles);
+		Trig.setMode(Trig.Mode.TABLE);
+		double table = measure("Table", angles);
+		
+		System.out.println(String.format("Speedup: %.2fx", table / exact));
+	}
+	
+	private static void checkAccuracy() {
+		Trig.setMode(Trig.Mode.TABLE);
+		Vector2f v = new Vector2f();
+		double maxError = 0.0;
+		
+		for(int i = 0; i <= 1000000; i++) {
+			float rad = (float) (-4.0 * Math.PI + i * 8.0 * Math.PI / 1000000);
+			Trig.sincos(rad, v);
+			maxError = Math.max(maxError, Math.abs(Trig.sin(rad) - Math.sin(rad)));
+			maxError = Math.max(maxError, Math.abs(Trig.cos(rad) - Math.cos(rad)));
+			maxError = Math.max(maxError, Math.abs(v.x - Math.cos(rad)));
+			maxError = Math.max(maxError, Math.abs(v.y - Math.sin(rad)));
+		}
+		
+		System.out.println(String.format("Max table error: %.3g (Bound: %.3g)", maxError, Trig.MAX_TABLE_ERROR));
+	}
+	
+	// Returns millions of sincos calls per second
+	private static double measure(String name, float[] angles) {
+		Vector2f v = new Vector2f();
+		
+		for(int r = 0; r < WARMUP_ROUNDS; r++) {
+			for(float rad : angles) {
+				sink += Trig.sincos(rad, v).x;
+			}
+		}
+		
+		long start = System.nanoTime();
+		for(int r = 0; r < ROUNDS; r++) {
+			for(float rad : angles) {
+				sink += Trig.sincos(rad, v).x;
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		
+		double mCallsPerSecond = (double) ANGLES * ROUNDS / (elapsed / 1.0E9) / 1.0E6;
+		System.out.println(String.format("%-6s %8.1f M sincos/s", name, mCallsPerSecond));
+		return mCallsPerSecond;
+	}
+}
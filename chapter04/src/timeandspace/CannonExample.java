@@ -2,6 +2,7 @@ package timeandspace;
 
 import java.awt.Canvas;
 import java.awt.Color;
+import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.event.KeyEvent;
 import java.awt.event.WindowAdapter;
@@ -12,9 +13,12 @@ import javax.swing.JFrame;
 import javax.swing.SwingUtilities;
 
 import javagames.chapter01_util.FrameRate;
+import javagames.chapter01_util.HudText;
 import javagames.chapter02_util.KeyboardInput;
 import javagames.chapter02_util.RelativeMouseInput;
+import javagames.chapter03_util.Affine2f;
 import javagames.chapter03_util.Matrix3x3f;
+import javagames.chapter03_util.PolygonRenderer;
 import javagames.chapter03_util.Vector2f;
 
 public class CannonExample extends JFrame implements Runnable {
@@ -28,6 +32,7 @@ public class CannonExample extends JFrame implements Runnable {
 	
 	private Vector2f[] cannon;
 	private Vector2f[] worldCannon;
+	private PolygonRenderer polygonRenderer = new PolygonRenderer();
 	private float cannonRot, cannonRotDelta;
 	
 	// We are assuming our bullet to be a single point for ease of calculation. When rendering, we will just draw a 2x2 pixel square around
@@ -36,6 +41,14 @@ public class CannonExample extends JFrame implements Runnable {
 	private Vector2f worldBullet;
 	private Vector2f velocity; // The velocity vector for the bullet
 	
+	// Reusable transformations so that the per-frame transformation chains don't allocate
+	private Affine2f cannonMat;
+	private Affine2f viewPort;
+	
+	// The velocity readout changes every frame. HudText formats it into a reused char buffer instead of String.format()
+	private HudText hud;
+	private HudText.Line velocityLine;
+	
 	private void createAndShowGUI() {
 		canvas = new Canvas();
 		canvas.setSize(640, 480);
@@ -87,7 +100,13 @@ public class CannonExample extends JFrame implements Runnable {
 		frameRate = new FrameRate();
 		frameRate.initialize();
 		
+		// Same font as the one drawString() uses on this canvas
+		Font font = canvas.getFont() != null ? canvas.getFont() : new Font(Font.DIALOG, Font.PLAIN, 12);
+		hud = new HudText(font, Color.BLACK);
+		velocityLine = hud.createLine();
+		
 		velocity = new Vector2f();
+		worldBullet = new Vector2f();
 		
 		cannonRot = 0.0f;
 		cannonRotDelta = (float)Math.toRadians(90.0);
@@ -99,6 +118,12 @@ public class CannonExample extends JFrame implements Runnable {
 			new Vector2f(-0.5f, -0.125f)	// bottom-left
 		};
 		worldCannon = new Vector2f[cannon.length];
+		for(int i = 0; i < worldCannon.length; i++) {
+			worldCannon[i] = new Vector2f();
+		}
+		
+		cannonMat = new Affine2f();
+		viewPort = new Affine2f();
 		
 		// We are just shrinking the size of the cannon to 75%. Not necessary. Just for demonstration
 		Matrix3x3f scale = Matrix3x3f.scale(0.75f, 0.75f);
@@ -138,11 +163,11 @@ public class CannonExample extends JFrame implements Runnable {
 			// We are creating a velocity vector for the bullet. The bullet will move 7 units
 			// per second along the x-axis. Since our bullet will be a projectile, we are not setting any
 			// y element of the velocity right now. It will be determined by the gravity that we will set in the updateObjects() function	
-			velocity = new Vector2f(7, 0);
+			velocity.set(7, 0);
 			// We want the velocity vector to rotate with the cannon. Otherwise, the bullet will always shoot parallel
 			// to ground	
 			Matrix3x3f bulletRotationMatrix = Matrix3x3f.rotate(cannonRot);
-			velocity = bulletRotationMatrix.mul(velocity);
+			bulletRotationMatrix.transformInto(velocity, velocity);
 			
 			/*
 			 * The above calculation can be done in the following way as well where we will firstly define the transformation matrix for the vector
@@ -173,21 +198,19 @@ public class CannonExample extends JFrame implements Runnable {
 		// Whenever we create or spawn an object, it is created at the origin(0, 0). We have to apply transformation to it
 		// to put it in its correct position.
 		// Let's create the transformation matrix for the cannon which is spawned at (0, 0)
-		Matrix3x3f mat = Matrix3x3f.identity();
-		// Then, we will rotate the cannon according to the value of the angle
-		mat = mat.mul(Matrix3x3f.rotate(cannonRot));
-		// Next, we will move the cannon at bottom-left position
-		mat = mat.mul(Matrix3x3f.translate(-2.0f, -2.0f));
+		// We will rotate the cannon according to the value of the angle and then move
+		// it at bottom-left position. setTRS() does both in one step
+		cannonMat.setTRS(-2.0f, -2.0f, cannonRot, 1.0f, 1.0f);
 		
 		for(int i = 0; i < cannon.length; i++) {
-			worldCannon[i] = mat.mul(cannon[i]);
+			cannonMat.transformInto(cannon[i], worldCannon[i]);
 		}
 		
 		if(bullet != null) {
 			velocity.y += -(9.8 * timeDelta);
 			bullet.x += (velocity.x * timeDelta);
 			bullet.y += (velocity.y * timeDelta);
-			worldBullet = new Vector2f(bullet);
+			worldBullet.set(bullet);
 			
 			// If the bullet goes below the bottom edge of the window, destroy it
 			if(bullet.y < -2.5f) {
@@ -224,8 +247,8 @@ public class CannonExample extends JFrame implements Runnable {
 		g.drawString("(A) to raise, (D) to lower", 20, 35);
 		g.drawString("Press Space to fire cannon", 20, 50);
 		
-		String velocityString = String.format("Velocity (%.2f, %.2f)", velocity.x, velocity.y);
-		g.drawString(velocityString, 20, 65);
+		velocityLine.clear().append("Velocity (").append(velocity.x, 2).append(", ").append(velocity.y, 2).append(')');
+		velocityLine.draw(g, 20, 65);
 		
 		float worldWidth = 5.0f;
 		float worldHeight = 5.0f;
@@ -237,32 +260,20 @@ public class CannonExample extends JFrame implements Runnable {
 		float tx = screenWidth / 2.0f;
 		float ty = screenHeight / 2.0f;
 		
-		Matrix3x3f viewPort = Matrix3x3f.scale(sx, -sy);
-		viewPort = viewPort.mul(Matrix3x3f.translate(tx, ty));
+		viewPort.setTRS(tx, ty, 0.0f, sx, -sy);
 		
 		for(int i = 0; i < cannon.length; i++) {
-			worldCannon[i] = viewPort.mul(worldCannon[i]);
+			viewPort.transformInto(worldCannon[i], worldCannon[i]);
 		}
 		
-		drawPolygon(g, worldCannon);
+		polygonRenderer.drawPolygon(g, worldCannon);
 		
 		if(bullet != null) {
-			worldBullet = viewPort.mul(worldBullet);
+			viewPort.transformInto(worldBullet, worldBullet);
 			g.drawRect((int)(worldBullet.x - 2), (int)(worldBullet.y - 2), 4, 4);
 		}
 	}
 	
-	private void drawPolygon(Graphics g, Vector2f[] polygon) {
-		Vector2f p;
-		Vector2f s = polygon[polygon.length - 1];
-		
-		for(int i = 0; i < polygon.length; i++) {
-			p = polygon[i];
-			g.drawLine((int)s.x, (int)s.y, (int)p.x, (int)p.y);
-			s = p;
-		}
-	}
-	
 	private void onWindowClosing() {
 		try {
 			running = false;
@@ -14,6 +14,7 @@ import javagames.chapter01_util.FrameRate;
 import javagames.chapter02_util.KeyboardInput;
 import javagames.chapter02_util.RelativeMouseInput;
 import javagames.chapter03_util.Matrix3x3f;
+import javagames.chapter03_util.PolygonRenderer;
 import javagames.chapter03_util.Vector2f;
 
 public class ScreenMappingExample extends JFrame implements Runnable {
@@ -30,6 +31,7 @@ public class ScreenMappingExample extends JFrame implements Runnable {
 	
 	private Vector2f[] rectangle;
 	private Vector2f[] worldRectangle;	
+	private PolygonRenderer polygonRenderer = new PolygonRenderer();
 	
 	private void createAndShowGUI() {
 		canvas = new Canvas();
@@ -174,26 +176,14 @@ public class ScreenMappingExample extends JFrame implements Runnable {
 			worldTriangle[i] = viewPort.mul(triangle[i]);
 		}
 		
-		drawPolygon(g, worldTriangle);
+		polygonRenderer.drawPolygon(g, worldTriangle);
 		
 		// Drawing the border rectangle
 		for(int i = 0; i < rectangle.length; i++) {
 			worldRectangle[i] = viewPort.mul(rectangle[i]);
 		}
 		
-		drawPolygon(g, worldRectangle);
-	}
-	
-	private void drawPolygon(Graphics g, Vector2f[] polygon) {
-		// We will keep drawing lines from point 's' to point 'p'
-		Vector2f p;
-		Vector2f s = polygon[polygon.length - 1];
-		
-		for(int i = 0; i < polygon.length; i++) {
-			p = polygon[i];
-			g.drawLine((int) s.x, (int) s.y, (int) p.x, (int) p.y);
-			s = p;
-		}
+		polygonRenderer.drawPolygon(g, worldRectangle);
 	}
 	
 	private void onWindowClosing() {
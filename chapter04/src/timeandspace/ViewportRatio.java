@@ -17,6 +17,7 @@ import javagames.chapter01_util.FrameRate;
 import javagames.chapter02_util.KeyboardInput;
 import javagames.chapter02_util.RelativeMouseInput;
 import javagames.chapter03_util.Matrix3x3f;
+import javagames.chapter03_util.PolygonRenderer;
 import javagames.chapter03_util.Vector2f;
 
 public class ViewportRatio extends JFrame implements Runnable {
@@ -30,6 +31,7 @@ public class ViewportRatio extends JFrame implements Runnable {
 	
 	private Vector2f[] triangle;
 	private Vector2f[] worldTriangle; // We will modify this one
+	private PolygonRenderer polygonRenderer = new PolygonRenderer();
 	
 	// The dimension of our world in our own co-ordinate system. We are using 16:9 aspect ratio
 	private float worldWidth = 16.0f;
@@ -218,19 +220,7 @@ public class ViewportRatio extends JFrame implements Runnable {
 			worldTriangle[i] = viewPort.mul(triangle[i]);
 		}
 		
-		drawPolygon(g, worldTriangle);
-	}
-	
-	private void drawPolygon(Graphics g, Vector2f[] polygon) {
-		// We will keep drawing lines from point 's' to point 'p'
-		Vector2f p;
-		Vector2f s = polygon[polygon.length - 1];
-		
-		for(int i = 0; i < polygon.length; i++) {
-			p = polygon[i];
-			g.drawLine((int) s.x, (int) s.y, (int) p.x, (int) p.y);
-			s = p;
-		}
+		polygonRenderer.drawPolygon(g, worldTriangle);
 	}
 	
 	private void onWindowClosing() {
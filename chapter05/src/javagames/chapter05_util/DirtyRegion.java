@@ -0,0 +1,148 @@
+package javagames.chapter05_util;
+
+import java.awt.Rectangle;
+
+/*
+ * Collects the screen rectangles that changed during a frame, for SimpleFramework's dirty rectangle mode.
+ *
+ * Before the rectangles are used they're clipped to the canvas and merged: two rectangles become their bounding box
+ * when that box isn't much bigger than the two of them together, since one larger region is cheaper to redraw and
+ * present than two overlapping or nearly touching ones. Too many rectangles are replaced by their bounding box, and
+ * covering most of the canvas turns into a full redraw. The Rectangle objects are pooled, so marking regions every
+ * frame doesn't allocate.
+ *
+ * Not thread safe. Mark and consume the regions on the game thread
+ * */
+public class DirtyRegion {
+	private static final float MERGE_SLACK = 1.25f; // The bounding box may waste up to 25% over the two areas
+	private static final int MAX_RECTS = 32;
+	private static final float FULL_REDRAW_RATIO = 0.6f; // Covering more than this much of the canvas redraws all of it
+	
+	private Rectangle[] rects = new Rectangle[8];
+	private int count;
+	private boolean all;
+	
+	public void add(int x, int y, int width, int height) {
+		if(all || width <= 0 || height <= 0) {
+			return;
+		}
+		
+		if(count == rects.length) {
+			Rectangle[] grown = new Rectangle[rects.length * 2];
+			System.arraycopy(rects, 0, grown, 0, count);
+			rects = grown;
+		}
+		if(rects[count] == null) {
+			rects[count] = new Rectangle();
+		}
+		rects[count++].setBounds(x, y, width, height);
+	}
+	
+	public void add(Rectangle r) {
+		add(r.x, r.y, r.width, r.height);
+	}
+	
+	// The whole canvas is redrawn this frame
+	public void addAll() {
+		all = true;
+	}
+	
+	public boolean isEmpty() {
+		return !all && count == 0;
+	}
+	
+	public void clear() {
+		count = 0;
+		all = false;
+	}
+	
+	// Clips the rectangles to the canvas and merges them. After this, getCount() and get() return the final regions
+	public void merge(int width, int height) {
+		int kept = 0;
+		for(int i = 0; i < count; i++) {
+			Rectangle r = rects[i];
+			int x1 = Math.max(r.x, 0);
+			int y1 = Math.max(r.y, 0);
+			int x2 = Math.min(r.x + r.width, width);
+			int y2 = Math.min(r.y + r.height, height);
+			if(x2 > x1 && y2 > y1) {
+				r.setBounds(x1, y1, x2 - x1, y2 - y1);
+				swap(i, kept++);
+			}
+		}
+		count = kept;
+		
+		// The pairwise merging below is quadratic, don't even try it with hundreds of rectangles
+		if(count > MAX_RECTS * 4) {
+			collapse();
+		}
+		
+		boolean merged = true;
+		while(merged && count > 1) {
+			merged = false;
+			for(int i = 0; i < count && !merged; i++) {
+				for(int j = i + 1; j < count; j++) {
+					if(shouldMerge(rects[i], rects[j])) {
+						rects[i].add(rects[j]);
+						swap(j, --count);
+						merged = true;
+						break;
+					}
+				}
+			}
+		}
+		
+		// Too many scattered rectangles make the clip expensive, so they're replaced by their bounding box
+		if(count > MAX_RECTS) {
+			collapse();
+		}
+		
+		long area = 0;
+		for(int i = 0; i < count; i++) {
+			area += (long) rects[i].width * rects[i].height;
+		}
+		
+		if(all || area > FULL_REDRAW_RATIO * width * height) {
+			all = true;
+			count = 1;
+			if(rects[0] == null) {
+				rects[0] = new Rectangle();
+			}
+			rects[0].setBounds(0, 0, width, height);
+		}
+	}
+	
+	public int getCount() {
+		return count;
+	}
+	
+	public Rectangle get(int index) {
+		return rects[index];
+	}
+	
+	// True if merge() turned the region into the whole canvas
+	public boolean isAll() {
+		return all;
+	}
+	
+	private void collapse() {
+		for(int i = 1; i < count; i++) {
+			rects[0].add(rects[i]);
+		}
+		count = 1;
+	}
+	
+	private static boolean shouldMerge(Rectangle a, Rectangle b) {
+		int x1 = Math.min(a.x, b.x);
+		int y1 = Math.min(a.y, b.y);
+		long union = (long) (Math.max(a.x + a.width, b.x + b.width) - x1) * (Math.max(a.y + a.height, b.y + b.height) - y1);
+		long sum = (long) a.width * a.height + (long) b.width * b.height;
+		return union <= sum * MERGE_SLACK;
+	}
+	
+	private void swap(int i, int j) {
+		Rectangle t = rects[i];
+		rects[i] = rects[j];
+		rects[j] = t;
+	}
+}
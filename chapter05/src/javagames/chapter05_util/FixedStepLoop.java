@@ -0,0 +1,40 @@
+package javagames.chapter05_util;
+
+import java.util.function.DoubleConsumer;
+
+// Physics behaves the same at any frame rate, since every update gets the same delta (1 / ticksPerSecond)
+public class FixedStepLoop implements GameLoop {
+	private final double step;
+	private final int maxSteps;
+	private double accumulator; // Simulation time that hasn't been consumed by fixed steps yet
+	
+	// After a very slow frame, we skip the simulation time that more than maxSteps couldn't catch up on instead of spiralling
+	public FixedStepLoop(int ticksPerSecond, int maxSteps) {
+		if(ticksPerSecond <= 0 || maxSteps <= 0) {
+			throw new IllegalArgumentException("The tick rate and the step limit must be positive");
+		}
+		
+		this.step = 1.0 / ticksPerSecond;
+		this.maxSteps = maxSteps;
+	}
+	
+	// Returns how far we are between the last simulated tick and the next one (0 to 1)
+	@Override
+	public double advance(double delta, DoubleConsumer update) {
+		accumulator += delta;
+		
+		int steps = 0;
+		while(accumulator >= step && steps < maxSteps) {
+			update.accept(step);
+			accumulator -= step;
+			steps++;
+		}
+		
+		// We hit the cap, so drop the whole ticks we couldn't simulate
+		if(accumulator >= step) {
+			accumulator %= step;
+		}
+		
+		return accumulator / step;
+	}
+}
@@ -0,0 +1,93 @@
+package javagames.chapter05_util;
+
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Keeps the game loop at a target frame rate. Instead of sleeping a fixed amount after every frame, it waits
+ * for whatever is left of the frame's time budget. Most of the wait is done with LockSupport.parkNanos(), which
+ * doesn't use the CPU, and the last fraction of a millisecond is spun so that we wake up right on time.
+ * 
+ * parkNanos() usually oversleeps a little, and how much depends on the OS. The pacer measures that and wakes up
+ * earlier by the same amount, so the spin stays short.
+ * */
+public class FramePacer {
+	public static final int UNCAPPED = 0;
+	
+	private static final long SPIN_WINDOW_NS = 250_000L; // Always spin at least the last 0.25 ms
+	private static final long MAX_OVERSLEEP_NS = 2_000_000L;
+	private static final double OVERSLEEP_SMOOTHING = 0.1; // Weight of the newest measurement
+	
+	private int targetFps;
+	private long periodNs;
+	private long nextDeadlineNs;
+	private double oversleepNs = 100_000.0; // Initial guess, corrected after the first few frames
+	
+	public FramePacer(int targetFps) {
+		setTargetFps(targetFps);
+	}
+	
+	// UNCAPPED (Or anything <= 0) turns the pacer off so that frames run back to back. Useful for benchmarking
+	public void setTargetFps(int targetFps) {
+		this.targetFps = Math.max(targetFps, UNCAPPED);
+		this.periodNs = isUncapped() ? 0L : 1_000_000_000L / this.targetFps;
+		reset();
+	}
+	
+	public int getTargetFps() {
+		return targetFps;
+	}
+	
+	public boolean isUncapped() {
+		return targetFps == UNCAPPED;
+	}
+	
+	// How long parkNanos() is currently estimated to oversleep
+	public long getOversleepEstimateNanos() {
+		return (long) oversleepNs;
+	}
+	
+	// Starts a new schedule with the next frame one period from now. Call it after a pause, so the pacer
+	// doesn't treat the pause as a late frame
+	public void reset() {
+		nextDeadlineNs = 0L;
+	}
+	
+	// Called once per frame, after the frame is finished. Returns when the next frame should start
+	public void waitForNextFrame() {
+		if(isUncapped()) {
+			return;
+		}
+		
+		long now = System.nanoTime();
+		if(nextDeadlineNs == 0L) {
+			nextDeadlineNs = now + periodNs;
+		}
+		
+		long parkUntil = nextDeadlineNs - SPIN_WINDOW_NS - (long) oversleepNs;
+		long requested;
+		// parkNanos() may return early for no reason, so we loop until the park phase is over
+		while((requested = parkUntil - now) > 0 && !Thread.currentThread().isInterrupted()) {
+			LockSupport.parkNanos(requested);
+			long after = System.nanoTime();
+			calibrate((after - now) - requested);
+			now = after;
+		}
+		
+		while(System.nanoTime() - nextDeadlineNs < 0) {
+			Thread.onSpinWait();
+		}
+		
+		// Schedule from the deadline rather than from now, so small errors don't add up over time. If the frame
+		// was so late that the next deadline has already passed, start over instead of rushing to catch up
+		nextDeadlineNs += periodNs;
+		now = System.nanoTime();
+		if(nextDeadlineNs - now < 0) {
+			nextDeadlineNs = now + periodNs;
+		}
+	}
+	
+	private void calibrate(long oversleptNs) {
+		long sample = Math.max(0L, Math.min(oversleptNs, MAX_OVERSLEEP_NS));
+		oversleepNs += (sample - oversleepNs) * OVERSLEEP_SMOOTHING;
+	}
+}
@@ -0,0 +1,28 @@
+package javagames.chapter05_util;
+
+import java.util.function.DoubleConsumer;
+
+/*
+ * Decides how the real time of a frame is turned into simulation steps, and whether the frame is drawn at all.
+ * The outer loop (Timing, pacing, input) stays in SimpleFramework, so the strategies only differ in what they do
+ * with the delta:
+ *
+ * VariableStepLoop: One update with the real delta. Simple, but the simulation depends on the frame rate
+ * FixedStepLoop: Updates with a constant step as often as needed to catch up, renders with the leftover as alpha
+ * SemiFixedStepLoop: Updates with the real delta, cut into pieces no longer than a maximum step
+ * RenderOnDemandLoop: Updates like VariableStepLoop, but only renders after requestRender(). For tools and menus
+ * */
+public interface GameLoop {
+	// Returned by advance() when the frame doesn't need to be drawn
+	double SKIP_RENDER = -1.0;
+	
+	// Runs the updates for a frame that took 'delta' seconds. 'update' is called with the delta of every simulation
+	// step. Returns the interpolation alpha (0 to 1) to render with, or SKIP_RENDER
+	double advance(double delta, DoubleConsumer update);
+	
+	// Asks for the next frame to be drawn. Only RenderOnDemandLoop needs it, the others draw every frame anyway.
+	// Safe to call from any thread
+	default void requestRender() {
+		
+	}
+}
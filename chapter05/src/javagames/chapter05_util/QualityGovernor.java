@@ -0,0 +1,128 @@
+package javagames.chapter05_util;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Trades image quality for frame rate when the scene gets too heavy. The governor is fed the busy time of every
+ * frame (input, update and render, without the present and the sleep of the frame pacing, which both wait for the
+ * display rather than work) and averages it over a window of frames. It then walks down or up
+ * a ladder of quality levels:
+ *
+ * Level 0: Full resolution, the game's own rendering hints (applyHints() leaves them alone)
+ * Level 1: Full resolution, speed rendering hints (No antialiasing, nearest neighbour interpolation)
+ * Level 2+: Speed rendering hints and a lower render scale, down to 'minRenderScale'
+ *
+ * A level is dropped as soon as one window averages above DOWNGRADE_RATIO of the frame budget, but only restored
+ * after UPGRADE_WINDOWS windows in a row below UPGRADE_RATIO of it. The gap between the two ratios is larger than the
+ * cost difference between two neighbouring levels, so going back up doesn't push us straight over the limit again.
+ * The window right after a change is ignored, since it still contains the frames rendered at the old level.
+ *
+ * Not thread safe. It's meant to be fed and read by the thread that renders
+ * */
+public class QualityGovernor {
+	private static final double DOWNGRADE_RATIO = 0.9;
+	private static final double UPGRADE_RATIO = 0.6;
+	private static final int UPGRADE_WINDOWS = 4;
+	private static final float SCALE_STEP = 0.125f;
+	
+	private final long budgetNanos;
+	private final int windowFrames;
+	private final float[] renderScales; // One per level
+	
+	private int level;
+	private long windowSum;
+	private int windowCount;
+	private int upgradeStreak;
+	private boolean skipWindow;
+	
+	// budgetNanos is the time one frame may take, e.g. 1/60th of a second. A window of a few tenths of a second
+	// reacts quickly while still averaging out single hitches
+	public QualityGovernor(long budgetNanos, float minRenderScale, int windowFrames) {
+		if(budgetNanos <= 0 || windowFrames <= 0) {
+			throw new IllegalArgumentException("The frame budget and the window must be positive");
+		}
+		
+		this.budgetNanos = budgetNanos;
+		this.windowFrames = windowFrames;
+		
+		List<Float> scales = new ArrayList<>();
+		scales.add(1.0f);
+		scales.add(1.0f);
+		for(float s = 1.0f - SCALE_STEP; s >= minRenderScale - 1e-6f; s -= SCALE_STEP) {
+			scales.add(s);
+		}
+		
+		renderScales = new float[scales.size()];
+		for(int i = 0; i < renderScales.length; i++) {
+			renderScales[i] = scales.get(i);
+		}
+	}
+	
+	public void record(long frameNanos) {
+		windowSum += frameNanos;
+		if(++windowCount < windowFrames) {
+			return;
+		}
+		
+		long avg = windowSum / windowCount;
+		windowSum = 0;
+		windowCount = 0;
+		
+		if(skipWindow) {
+			skipWindow = false;
+			return;
+		}
+		
+		if(avg > budgetNanos * DOWNGRADE_RATIO) {
+			upgradeStreak = 0;
+			if(level < renderScales.length - 1) {
+				setLevel(level + 1);
+			}
+		} else if(avg < budgetNanos * UPGRADE_RATIO) {
+			if(level > 0 && ++upgradeStreak >= UPGRADE_WINDOWS) {
+				upgradeStreak = 0;
+				setLevel(level - 1);
+			}
+		} else {
+			upgradeStreak = 0;
+		}
+	}
+	
+	private void setLevel(int level) {
+		this.level = level;
+		skipWindow = true;
+	}
+	
+	public int getLevel() {
+		return level;
+	}
+	
+	public int getLevelCount() {
+		return renderScales.length;
+	}
+	
+	// The fraction of the canvas size the scene should be rendered at (1 means full resolution)
+	public float getRenderScale() {
+		return renderScales[level];
+	}
+	
+	public boolean isHighQuality() {
+		return level == 0;
+	}
+	
+	// Sets the speed rendering hints from level 1 on. At level 0 the game's own hints are kept, so the top level
+	// looks and costs the same as running without the governor. Games that set hints of their own in render() override these
+	public void applyHints(Graphics2D g) {
+		if(isHighQuality()) {
+			return;
+		}
+		
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+		g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+		g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+	}
+}
@@ -0,0 +1,23 @@
+package javagames.chapter05_util;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.DoubleConsumer;
+
+// Updates every frame but only draws when something asked for it, e.g. an input handler or a resize. A mostly static
+// screen then costs almost no CPU or GPU time. The first frame is always drawn
+public class RenderOnDemandLoop implements GameLoop {
+	private final AtomicBoolean renderRequested = new AtomicBoolean(true);
+	
+	@Override
+	public double advance(double delta, DoubleConsumer update) {
+		update.accept(delta);
+		
+		// Cleared before rendering, so a request made while this frame is drawn isn't lost
+		return renderRequested.getAndSet(false) ? 1.0 : SKIP_RENDER;
+	}
+	
+	@Override
+	public void requestRender() {
+		renderRequested.set(true);
+	}
+}
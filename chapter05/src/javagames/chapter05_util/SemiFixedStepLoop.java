@@ -0,0 +1,33 @@
+package javagames.chapter05_util;
+
+import java.util.function.DoubleConsumer;
+
+// Keeps the real time like VariableStepLoop, but a long frame is simulated as several shorter steps so that fast
+// objects don't tunnel through each other. There is no leftover to interpolate, so it always renders with alpha 1
+public class SemiFixedStepLoop implements GameLoop {
+	private final double maxStep;
+	private final int maxSteps;
+	
+	public SemiFixedStepLoop(double maxStep, int maxSteps) {
+		if(maxStep <= 0.0 || maxSteps <= 0) {
+			throw new IllegalArgumentException("The step and the step limit must be positive");
+		}
+		
+		this.maxStep = maxStep;
+		this.maxSteps = maxSteps;
+	}
+	
+	@Override
+	public double advance(double delta, DoubleConsumer update) {
+		int steps = 0;
+		while(delta > 0.0 && steps < maxSteps) {
+			double dt = Math.min(delta, maxStep);
+			update.accept(dt);
+			delta -= dt;
+			steps++;
+		}
+		
+		// Whatever is left after maxSteps is dropped, like in FixedStepLoop
+		return 1.0;
+	}
+}
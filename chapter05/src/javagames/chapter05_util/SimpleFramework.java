@@ -1,23 +1,42 @@
 package javagames.chapter05_util;
 
+import java.awt.BufferCapabilities;
 import java.awt.Canvas;
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.DisplayMode;
 import java.awt.Font;
+import java.awt.FontMetrics;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsDevice;
+import java.awt.GraphicsEnvironment;
 import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Toolkit;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.DoubleConsumer;
 
 import javax.swing.JFrame;
 import javax.swing.SwingUtilities;
 
-import javagames.chapter01_util.FrameRate;
+import javagames.chapter01_util.FrameProfiler;
+import javagames.chapter01_util.FrameProfiler.Phase;
+import javagames.chapter01_util.FrameProfilerOverlay;
+import javagames.chapter01_util.HudText;
 import javagames.chapter02_util.KeyboardInput;
 import javagames.chapter02_util.RelativeMouseInput;
+import javagames.chapter03_util.FrameArena;
 import javagames.chapter03_util.Matrix3x3f;
 import javagames.chapter03_util.Vector2f;
 
@@ -26,19 +45,72 @@ import javagames.chapter03_util.Vector2f;
  * boilerplate code for creating any game. It will provide utilities such as
  * creating window, input, render etc. Games will extend this class, so we have to make usable variables
  * and methods 'protected' instead of 'private' 
+ * 
+ * The window is kept in the 'frame' field instead of the framework extending JFrame itself. A JFrame can't even be
+ * constructed without a display, and that would make headless mode (appHeadless) impossible
  * */
-public class SimpleFramework extends JFrame implements Runnable {
+public class SimpleFramework implements Runnable {
+	
+	private static final long FULL_PRESENT_INTERVAL = 500_000_000L; // Dirty rectangle mode, see renderDirtyFrame()
+	// Where drawOverlay() puts the framework text (baselines). Dirty rectangle mode marks the same places
+	private static final int OVERLAY_X = 20;
+	private static final int FPS_Y = 20;
+	private static final int PROFILER_Y = 40;
 	
 	// Private fields that are only the concern of the framework
 	private BufferStrategy bs;
 	private volatile boolean running;
 	private Thread gameThread;
+	private volatile GameLoop gameLoopStrategy; // appGameLoop, or the loop picked from appFixedTimeStep
+	private final DoubleConsumer updater = this::updateObjects;
+	private FramePacer framePacer;
+	private Thread renderThread;
+	private SnapshotHandler<?> snapshotHandler;
+	private SnapshotPipeline<?> snapshotPipeline;
+	private BufferedImage headlessImage; // The off-screen render target in headless mode
+	private GraphicsDevice graphicsDevice; // Only set in full screen mode
+	private DisplayMode originalDisplayMode; // Restored when a full screen game exits
+	private QualityGovernor qualityGovernor; // Only created with appDynamicQuality
+	private BufferedImage scaledImage; // The reduced resolution render target while the governor lowers the render scale
+	private long lastPresentNanos; // Time the last renderFrame() spent presenting. It's left out of the governor's busy time
+	// Work handed to the game thread by other threads, and delayed or repeating tasks. Both run at the start of every frame
+	private final TaskQueue taskQueue = new TaskQueue();
+	private final TimerWheel timerWheel = new TimerWheel(1_000_000L, 512);
+	private volatile StaticLayer backgroundLayer; // Drawn at the start of every frame, see setBackgroundLayer()
+	// Dirty rectangle mode. The frame is kept in dirtyBuffer between frames, and only the marked regions are redrawn and presented
+	private DirtyRegion dirtyRegion;
+	private BufferedImage dirtyBuffer;
+	private long lastFullPresent;
+	private int lastShownFps = -1;
+	private int currentFps; // What the FPS line shows. Refreshed once a second, like FrameRate did, so the number stays readable
+	private long lastFpsUpdate;
+	private int lastFpsWidth;
+	private int profilerWidth; // The widest the profiler overlay has been, so that a narrower table still covers the old one
+	
+	// Scratch objects for the mouse position helpers so that polling the mouse every frame doesn't allocate
+	private Matrix3x3f mouseMatrix = new Matrix3x3f();
+	private Vector2f mouseVector = new Vector2f();
+	
+	// The viewport matrices only change when the canvas or the world size changes, so they are built once and cached.
+	// Every rebuild publishes a new immutable ViewPort through a volatile field, which makes it safe to read from the render thread too
+	private volatile ViewPort viewPort;
+	private final AtomicInteger viewPortVersion = new AtomicInteger();
 	
 	// These fields will be shared the game
-	protected FrameRate frameRate;
+	protected JFrame frame; // Stays null in headless mode
+	// Times every phase of the game loop (See FrameProfiler.Phase). Its statistics can be read at any time, or shown with appShowProfiler.
+	// It also provides the FPS, from the FRAME phase
+	protected FrameProfiler frameProfiler = new FrameProfiler(600);
+	private FrameProfilerOverlay profilerOverlay;
+	// Readouts that change every frame (FPS, positions, velocities) can be drawn through this without allocating. See HudText.
+	// It uses appFont and appFpsTextColor, and is created in initialize()
+	protected HudText hud;
+	private HudText.Line fpsLine;
 	protected Canvas canvas;
 	protected KeyboardInput keyboardInput;
 	protected RelativeMouseInput mouseInput;
+	// Scratch vectors and matrices that are only valid for the current frame. It is reset at the start of every game loop iteration
+	protected FrameArena frameArena = new FrameArena();
 	
 	// We're using the prefix 'app' to get easy access to game properties in the autocomplete suggestion
 	protected String appTitle = "Untitled Game";
@@ -47,8 +119,42 @@ public class SimpleFramework extends JFrame implements Runnable {
 	protected float appBorderScale = 0.8f; // The ratio of the canvas and JFrame when aspect ratio is being maintained
 	protected float appWorldWidth = 2.0f; // Our world will have a dimension of 2x2 units
 	protected float appWorldHeight = 2.0f;
-	protected long appSleepTime = 10; // The sleep between each iteration of the game loop
+	protected long appSleepTime = 10; // The sleep between each iteration of the game loop. Only used when appTargetFps is 0
+	protected int appTargetFps = 0; // When > 0, the loop is paced to this frame rate (See FramePacer) instead of sleeping appSleepTime
+	protected boolean appUncappedFrameRate = false; // Run frames back to back without any sleep. Useful for benchmarking
 	protected boolean appMaintainAspectRatio = false; // We're setting this false by default since in some circumstances, we may not need it. For example, when tha game window has fixed height and width
+	// When enabled, updateObjects() is always called with the same delta (1 / appTicksPerSecond), as many times as needed to catch
+	// up with the real time. Physics then behaves the same at any frame rate. The leftover fraction of a tick is passed to render() as alpha
+	protected boolean appFixedTimeStep = false;
+	protected int appTicksPerSecond = 60;
+	protected int appMaxStepsPerFrame = 5; // After a very slow frame, we skip the simulation time we couldn't catch up on instead of spiralling
+	// Replaces the loop picked by appFixedTimeStep, e.g. with a SemiFixedStepLoop or a RenderOnDemandLoop. See GameLoop
+	protected GameLoop appGameLoop = null;
+	// When enabled (and a snapshot handler is set), frames are drawn on a separate render thread from snapshots of the game state,
+	// while the game thread already simulates the next frame. See SnapshotHandler
+	protected boolean appPipelinedRendering = false;
+	protected boolean appDebugFrameArena = false; // Catches frame arena objects that are used after the frame they were taken in
+	protected boolean appShowProfiler = false; // Draws the frame time statistics of each phase below the FPS
+	protected int appBufferCount = 2; // 2 is double buffering, 3 is triple buffering. See getBufferCapabilitiesReport() for what we actually got
+	// Full screen exclusive mode. ESC exits since there is no window decoration. If the device doesn't support it we fall back to a window
+	protected boolean appFullScreen = false;
+	// The display mode to switch to in full screen mode, or null to keep the current one. The closest supported mode is picked.
+	// BIT_DEPTH_MULTI and REFRESH_RATE_UNKNOWN match anything
+	protected DisplayMode appDisplayMode = null;
+	// Lowers the rendering hints and then the render resolution while frames take longer than the frame budget (1 / appTargetFps,
+	// or 1/60 s without a target), and restores them when there is headroom again. See QualityGovernor
+	protected boolean appDynamicQuality = false;
+	protected float appMinRenderScale = 0.5f; // The lowest fraction of the canvas size the governor may render at
+	// Only redraw and present the regions marked with markDirty(), see renderDirtyFrame(). For mostly static screens where only a few
+	// small things move. Not available with pipelined rendering, in full screen or in headless mode, and appDynamicQuality is ignored
+	protected boolean appDirtyRectangles = false;
+	// How long the queued runOnGameThread() tasks may run per frame. Whatever is left waits for the next frame
+	protected double appTaskBudgetMillis = 2.0;
+	// Runs the game without a window, e.g. on servers without a display. It's turned on automatically when there is no display.
+	// Combine it with appUncappedFrameRate to run as fast as possible, or with appTargetFps/appFixedTimeStep for a fixed tick
+	protected boolean appHeadless = false;
+	protected boolean appHeadlessRender = true; // In headless mode, render into an off-screen image (See getHeadlessImage()) or skip rendering entirely
+	protected long appHeadlessFrameLimit = 0; // In headless mode, stop after this many frames. 0 means run until stopGame() is called
 	
 	protected Color appBackgroundColor = Color.BLACK; // Background color for the canvas;
 	protected Color appBorderColor = Color.LIGHT_GRAY; // The color of the gap between the canvas and the JFrame when the aspect ratio is being adjusted
@@ -56,18 +162,39 @@ public class SimpleFramework extends JFrame implements Runnable {
 	protected Font appFont = new Font("Courier New", Font.PLAIN, 14); // The default font that we want to use in the game. We have to apply it in the components manually however
 	
 	protected void createAndShowGUI() {
+		frame = new JFrame();
+		frame.addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowClosing(WindowEvent e) {
+				onWindowClosing();
+			}
+		});
+		
 		canvas = new Canvas();
 		canvas.setBackground(appBackgroundColor);
+		canvas.addComponentListener(new ComponentAdapter() {
+			@Override
+			public void componentResized(ComponentEvent e) {
+				requestRender();
+			}
+		});
 		canvas.setIgnoreRepaint(true);
 		
-		getContentPane().add(canvas);
-		setLocationByPlatform(true); // Spawn the window at the default location in the screen that native windowing system provides
+		frame.getContentPane().add(canvas);
+		frame.setLocationByPlatform(true); // Spawn the window at the default location in the screen that native windowing system provides
+		
+		GraphicsDevice device = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice();
+		if(appFullScreen && !device.isFullScreenSupported()) {
+			System.err.println("Full screen mode is not supported, falling back to a window");
+		}
 	
-		if(appMaintainAspectRatio) {
-			getContentPane().setBackground(appBorderColor);
-			setSize(appWidth, appHeight);
-			setLayout(null);
-			getContentPane().addComponentListener(new ComponentAdapter() {
+		if(appFullScreen && device.isFullScreenSupported()) {
+			enterFullScreen(device);
+		} else if(appMaintainAspectRatio) {
+			frame.getContentPane().setBackground(appBorderColor);
+			frame.setSize(appWidth, appHeight);
+			frame.setLayout(null);
+			frame.getContentPane().addComponentListener(new ComponentAdapter() {
 				@Override
 				public void componentResized(ComponentEvent e) {
 					onComponentResized(e);
@@ -75,22 +202,19 @@ public class SimpleFramework extends JFrame implements Runnable {
 			});
 		} else {
 			canvas.setSize(appWidth, appHeight);
-			pack();
+			frame.pack();
 		}
 		
-		setTitle(appTitle);
-		
-		keyboardInput = new KeyboardInput();
-		canvas.addKeyListener(keyboardInput);
+		frame.setTitle(appTitle);
 		
-		mouseInput = new RelativeMouseInput(canvas);
-		canvas.addMouseListener(mouseInput);
-		canvas.addMouseMotionListener(mouseInput);
-		canvas.addMouseWheelListener(mouseInput);
+		createInput();
 		
-		setVisible(true);
+		if(graphicsDevice == null) {
+			frame.setVisible(true);
+		}
 		
-		canvas.createBufferStrategy(2);
+		// createBufferStrategy() tries page flipping first, then accelerated and finally unaccelerated blitting
+		canvas.createBufferStrategy(appBufferCount);
 		bs = canvas.getBufferStrategy();
 		canvas.requestFocus();
 		
@@ -98,8 +222,135 @@ public class SimpleFramework extends JFrame implements Runnable {
 		gameThread.start();
 	}
 	
+	private void enterFullScreen(GraphicsDevice device) {
+		frame.setUndecorated(true);
+		frame.setIgnoreRepaint(true);
+		frame.setBackground(appBackgroundColor);
+		
+		graphicsDevice = device;
+		originalDisplayMode = device.getDisplayMode();
+		device.setFullScreenWindow(frame);
+		
+		if(appDisplayMode != null && device.isDisplayChangeSupported()) {
+			DisplayMode mode = findDisplayMode(device, appDisplayMode);
+			if(mode != null) {
+				device.setDisplayMode(mode);
+			} else {
+				System.err.println("No display mode matches " + describe(appDisplayMode) + ", keeping the current one");
+			}
+		}
+		
+		canvas.addKeyListener(new KeyAdapter() {
+			@Override
+			public void keyPressed(KeyEvent e) {
+				if(e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+					onWindowClosing();
+				}
+			}
+		});
+		
+		frame.validate();
+	}
+	
+	// The size has to match exactly. Among those, a mode with the right bit depth and refresh rate is preferred
+	private static DisplayMode findDisplayMode(GraphicsDevice device, DisplayMode wanted) {
+		DisplayMode best = null;
+		int bestScore = -1;
+		
+		for(DisplayMode mode : device.getDisplayModes()) {
+			if(mode.getWidth() != wanted.getWidth() || mode.getHeight() != wanted.getHeight()) {
+				continue;
+			}
+			
+			int score = 0;
+			if(wanted.getBitDepth() == DisplayMode.BIT_DEPTH_MULTI || mode.getBitDepth() == DisplayMode.BIT_DEPTH_MULTI
+					|| mode.getBitDepth() == wanted.getBitDepth()) {
+				score += 2;
+			}
+			if(wanted.getRefreshRate() == DisplayMode.REFRESH_RATE_UNKNOWN || mode.getRefreshRate() == wanted.getRefreshRate()) {
+				score += 1;
+			}
+			
+			if(score > bestScore) {
+				best = mode;
+				bestScore = score;
+			}
+		}
+		
+		return best;
+	}
+	
+	private static String describe(DisplayMode mode) {
+		return mode.getWidth() + "x" + mode.getHeight() + ", " + mode.getBitDepth() + " bit, " + mode.getRefreshRate() + " Hz";
+	}
+	
+	// What the buffer strategy actually gave us, or null before the window is created and in headless mode
+	protected BufferCapabilities getBufferCapabilities() {
+		return bs != null ? bs.getCapabilities() : null;
+	}
+	
+	// Human readable summary of the presentation path, e.g. to print it at startup
+	protected String getBufferCapabilitiesReport() {
+		BufferCapabilities caps = getBufferCapabilities();
+		if(caps == null) {
+			return "No buffer strategy (headless)";
+		}
+		
+		StringBuilder sb = new StringBuilder();
+		sb.append("Buffers: ").append(appBufferCount);
+		sb.append(", presentation: ").append(caps.isPageFlipping() ? "page flipping (" + caps.getFlipContents() + ")" : "blitting");
+		sb.append(", back buffer accelerated: ").append(caps.getBackBufferCapabilities().isAccelerated());
+		sb.append(", front buffer accelerated: ").append(caps.getFrontBufferCapabilities().isAccelerated());
+		sb.append(", full screen: ").append(graphicsDevice != null);
+		if(graphicsDevice != null) {
+			sb.append(" (").append(describe(graphicsDevice.getDisplayMode())).append(")");
+		}
+		
+		return sb.toString();
+	}
+	
+	// Headless counterpart of createAndShowGUI(). The canvas is never shown, it only gives the viewport its size
+	protected void createHeadless() {
+		canvas = new Canvas();
+		canvas.setSize(appWidth, appHeight);
+		
+		if(appHeadlessRender) {
+			headlessImage = new BufferedImage(appWidth, appHeight, BufferedImage.TYPE_INT_RGB);
+		}
+		
+		createInput();
+		
+		gameThread = new Thread(this);
+		gameThread.start();
+	}
+	
+	private void createInput() {
+		keyboardInput = new KeyboardInput();
+		canvas.addKeyListener(keyboardInput);
+		
+		mouseInput = new RelativeMouseInput(canvas);
+		canvas.addMouseListener(mouseInput);
+		canvas.addMouseMotionListener(mouseInput);
+		canvas.addMouseWheelListener(mouseInput);
+	}
+	
+	// The last frame rendered in headless mode, or null if headless rendering is turned off. Only read it from the game thread
+	// (e.g. in terminate()) since it's overwritten every frame
+	protected BufferedImage getHeadlessImage() {
+		return headlessImage;
+	}
+	
+	protected boolean isHeadless() {
+		return appHeadless;
+	}
+	
+	// Ends the game loop. terminate() is called once the current frame is finished
+	protected void stopGame() {
+		running = false;
+	}
+	
 	protected void onComponentResized(ComponentEvent e) {
-		Dimension size = getContentPane().getSize();
+		Dimension size = frame.getContentPane().getSize();
 		
 		int viewPortWidth = (int) (size.width * appBorderScale);
 		int viewPortHeight = (int) (size.height * appBorderScale);
@@ -118,64 +369,204 @@ public class SimpleFramework extends JFrame implements Runnable {
 		
 		canvas.setLocation(viewPortX, viewPortY);
 		canvas.setSize(newWidth, newHeight);
+		invalidateViewPort();
+	}
+	
+	// Forces the viewport matrices to be rebuilt the next time they are requested. Changes to the canvas size or
+	// appWorldWidth/appWorldHeight are picked up automatically, this is only needed for anything else
+	protected void invalidateViewPort() {
+		viewPortVersion.incrementAndGet();
+		
+		// The background was most likely painted with the old viewport
+		StaticLayer background = backgroundLayer;
+		if(background != null) {
+			background.invalidate();
+		}
 	}
 	
+	// The returned matrix is shared until the viewport changes, so don't modify it
 	protected Matrix3x3f getViewPortTransformMatrix() {
-		return Utility.createViewPortMatrix(appWorldWidth, appWorldHeight, canvas.getWidth(), canvas.getHeight());
+		return currentViewPort().matrix;
 	}
 	
+	// The returned matrix is shared until the viewport changes, so don't modify it
 	protected Matrix3x3f getReverseViewPortTransformMatrix() {
-		return Utility.createReverseViewPortMatrix(appWorldWidth, appWorldHeight, canvas.getWidth(), canvas.getHeight());
+		return currentViewPort().reverseMatrix;
+	}
+	
+	private ViewPort currentViewPort() {
+		ViewPort current = viewPort;
+		int version = viewPortVersion.get();
+		int width = canvas.getWidth();
+		int height = canvas.getHeight();
+		
+		if(current == null || !current.matches(version, appWorldWidth, appWorldHeight, width, height)) {
+			current = new ViewPort(version, appWorldWidth, appWorldHeight, width, height);
+			viewPort = current;
+		}
+		
+		return current;
+	}
+	
+	private static final class ViewPort {
+		final int version;
+		final float worldWidth, worldHeight;
+		final int screenWidth, screenHeight;
+		final Matrix3x3f matrix;
+		final Matrix3x3f reverseMatrix;
+		
+		ViewPort(int version, float worldWidth, float worldHeight, int screenWidth, int screenHeight) {
+			this.version = version;
+			this.worldWidth = worldWidth;
+			this.worldHeight = worldHeight;
+			this.screenWidth = screenWidth;
+			this.screenHeight = screenHeight;
+			matrix = Utility.createViewPortMatrix(worldWidth, worldHeight, screenWidth, screenHeight);
+			reverseMatrix = Utility.createReverseViewPortMatrix(worldWidth, worldHeight, screenWidth, screenHeight);
+			
+			// Matrix3x3f computes its inverse lazily. Doing it here, before the matrices are shared, means that
+			// calling inverse() on them later only reads
+			try {
+				matrix.invertInto(new Matrix3x3f());
+				reverseMatrix.invertInto(new Matrix3x3f());
+			} catch(ArithmeticException e) {
+				// A canvas that is 1 pixel wide or high can't be inverted. Nothing worth drawing there anyway
+			}
+		}
+		
+		boolean matches(int version, float worldWidth, float worldHeight, int screenWidth, int screenHeight) {
+			return this.version == version
+					&& this.worldWidth == worldWidth && this.worldHeight == worldHeight
+					&& this.screenWidth == screenWidth && this.screenHeight == screenHeight;
+		}
 	}
 	
 	// Returns mouse cursor co-ordinate in terms of the world co-ordinate system
 	protected Vector2f getWorldMousePosition() {
+		return getWorldMousePosition(new Vector2f());
+	}
+	
+	// Same as above but writes the position into dest instead of allocating a new vector
+	protected Vector2f getWorldMousePosition(Vector2f dest) {
 		Matrix3x3f screenToWorldMatrix = getReverseViewPortTransformMatrix();
 		Point mousePoint = mouseInput.getPosition();
-		Vector2f screenMousePosition = new Vector2f(mousePoint.x, mousePoint.y);
+		Vector2f screenMousePosition = mouseVector.set(mousePoint.x, mousePoint.y);
 		
-		return screenToWorldMatrix.mul(screenMousePosition);
+		return screenToWorldMatrix.transformInto(screenMousePosition, dest);
 	}
 	
 	// Returns the relative mouse cursor co-ordinate in terms of the world co-ordinate system. Note that since
 	// relative position just says how much change has been made with respect to the previous position, we don't need a translation matrix for that. Only the
 	// scaling matrix will be enough to scale the co-ordinate points
 	protected Vector2f getRelativeWorldMousePosition() {
+		return getRelativeWorldMousePosition(new Vector2f());
+	}
+	
+	// Same as above but writes the position into dest instead of allocating a new vector
+	protected Vector2f getRelativeWorldMousePosition(Vector2f dest) {
 		float sx = appWorldWidth / (canvas.getWidth() - 1);
 		float sy = appWorldHeight / (canvas.getHeight() - 1);
 		
-		Matrix3x3f reverseScaleMatrix = Matrix3x3f.scale(sx, -sy);
+		Matrix3x3f reverseScaleMatrix = mouseMatrix.setScale(sx, -sy);
 		Point mousePoint = mouseInput.getPosition();
 		
-		return reverseScaleMatrix.mul(new Vector2f(mousePoint.x, mousePoint.y));
+		return reverseScaleMatrix.transformInto(mouseVector.set(mousePoint.x, mousePoint.y), dest);
 	}
 	
 	@Override
 	public void run() {
 		running = true;
+		frameArena.setDebug(appDebugFrameArena);
+		framePacer = new FramePacer(appUncappedFrameRate ? FramePacer.UNCAPPED : appTargetFps);
+		if(appGameLoop != null) {
+			gameLoopStrategy = appGameLoop;
+		} else if(appFixedTimeStep) {
+			gameLoopStrategy = new FixedStepLoop(appTicksPerSecond, appMaxStepsPerFrame);
+		} else {
+			gameLoopStrategy = new VariableStepLoop();
+		}
+		if(appDynamicQuality && !appHeadless && !appDirtyRectangles) {
+			int fps = appTargetFps > 0 ? appTargetFps : 60;
+			qualityGovernor = new QualityGovernor(1_000_000_000L / fps, appMinRenderScale, Math.max(1, fps / 4));
+		}
 		
 		// All the game object initialization code will go in the initialize() method. However, window or canvas initialization code should not go here. They
 		// should be kept in createAndShowGUI() method or in the constructor.
 		initialize();
 		
+		if(appPipelinedRendering && snapshotHandler != null) {
+			snapshotPipeline = createPipeline(snapshotHandler);
+			renderThread = new Thread(this::renderLoop, "Render Thread");
+			renderThread.start();
+		}
+		
+		if(appDirtyRectangles) {
+			// Dirty rectangles are presented by drawing on the canvas directly, which page flipping doesn't allow
+			if(snapshotPipeline != null || appHeadless || graphicsDevice != null) {
+				System.err.println("Dirty rectangles are not supported with pipelined rendering, in full screen or in headless mode, redrawing full frames");
+			} else {
+				dirtyRegion = new DirtyRegion();
+			}
+		}
+		
 		long currentTimeNS = System.nanoTime();
 		long lastTimeNS = currentTimeNS;
 		double nsPerFrame;
 		
+		long frames = 0;
 		while(running) {
 			currentTimeNS = System.nanoTime();
 			nsPerFrame = currentTimeNS - lastTimeNS;
 			gameLoop(nsPerFrame / 1.0E9);
 			lastTimeNS = currentTimeNS;
+			
+			if(appHeadless && appHeadlessFrameLimit > 0 && ++frames >= appHeadlessFrameLimit) {
+				running = false;
+			}
+		}
+		
+		if(renderThread != null) {
+			try {
+				LockSupport.unpark(renderThread);
+				renderThread.join();
+			} catch(InterruptedException e) {
+				e.printStackTrace();
+			}
 		}
 		
 		// Post game termination code should go in the terminate() method
 		terminate();
 	}
 	
+	// Games that want pipelined rendering set their handler here, before the game loop starts (e.g. in the constructor)
+	protected void setSnapshotHandler(SnapshotHandler<?> snapshotHandler) {
+		this.snapshotHandler = snapshotHandler;
+	}
+	
+	private static <S> SnapshotPipeline<S> createPipeline(SnapshotHandler<S> handler) {
+		return new SnapshotPipeline<>(handler);
+	}
+	
+	// The render thread draws every new snapshot once, and parks while there is none. The game thread wakes it up
+	// as soon as it publishes one
+	private void renderLoop() {
+		while(running) {
+			if(snapshotPipeline.acquire()) {
+				long start = System.nanoTime();
+				renderFrame(1.0);
+				if(qualityGovernor != null) {
+					qualityGovernor.record(System.nanoTime() - start - lastPresentNanos);
+				}
+			} else {
+				LockSupport.parkNanos(1_000_000L);
+			}
+		}
+	}
+	
 	protected void initialize() {
-		frameRate = new FrameRate();
-		frameRate.initialize();
+		profilerOverlay = new FrameProfilerOverlay(frameProfiler, 500);
+		hud = new HudText(appFont, appFpsTextColor);
+		fpsLine = hud.createLine();
 	}
 	
 	// We're keeping this empty by default
@@ -184,15 +575,78 @@ public class SimpleFramework extends JFrame implements Runnable {
 	}
 	
 	private void gameLoop(double delta) {
+		frameProfiler.beginFrame();
+		frameArena.reset();
+		
+		taskQueue.drain((long) (appTaskBudgetMillis * 1_000_000L));
+		timerWheel.advance((long) (delta * 1.0E9));
+		
+		long busyStart = System.nanoTime();
+		frameProfiler.begin(Phase.INPUT);
 		processInput(delta);
-		updateObjects(delta);
-		renderFrame();
+		frameProfiler.end(Phase.INPUT);
 		
-		try {
-			Thread.sleep(appSleepTime);
-		} catch(InterruptedException e) {
-			e.printStackTrace();
+		frameProfiler.begin(Phase.UPDATE);
+		double alpha = gameLoopStrategy.advance(delta, updater);
+		frameProfiler.end(Phase.UPDATE);
+		
+		if(alpha == GameLoop.SKIP_RENDER) {
+			// Nothing to draw this frame
+		} else if(snapshotPipeline != null) {
+			snapshotPipeline.publish(alpha);
+			LockSupport.unpark(renderThread);
+		} else {
+			renderFrame(alpha);
+			// Input, update and render. The present can block until the next vertical retrace (e.g. with page flipping),
+			// which would look like a heavy scene. With pipelined rendering, the render thread feeds the governor instead
+			if(qualityGovernor != null) {
+				qualityGovernor.record(System.nanoTime() - busyStart - lastPresentNanos);
+			}
+		}
+		
+		if(appUncappedFrameRate || appTargetFps > 0) {
+			framePacer.waitForNextFrame();
+		} else {
+			try {
+				Thread.sleep(appSleepTime);
+			} catch(InterruptedException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	// Runs the task on the game thread at the start of the next frame. Safe to call from any thread, e.g. from
+	// AWT listeners or background loaders, which must not touch the game state directly. The tasks run in the order they were queued
+	public void runOnGameThread(Runnable task) {
+		taskQueue.offer(task);
+	}
+	
+	// Runs the task on the game thread once, after the delay. The returned timer can be cancelled. Safe to call from any thread
+	public TimerWheel.Timer runLater(Runnable task, long delayMillis) {
+		return addTimer(timerWheel.create(task, delayMillis * 1_000_000L, 0));
+	}
+	
+	// Runs the task on the game thread every periodMillis, starting after delayMillis. Safe to call from any thread
+	public TimerWheel.Timer runRepeating(Runnable task, long delayMillis, long periodMillis) {
+		if(periodMillis <= 0) {
+			throw new IllegalArgumentException("The period must be positive");
 		}
+		return addTimer(timerWheel.create(task, delayMillis * 1_000_000L, periodMillis * 1_000_000L));
+	}
+	
+	// The wheel belongs to the game thread, so other threads queue the insertion. The delay then starts with the next frame
+	private TimerWheel.Timer addTimer(final TimerWheel.Timer timer) {
+		if(Thread.currentThread() == gameThread) {
+			timerWheel.add(timer);
+		} else {
+			taskQueue.offer(new Runnable() {
+				@Override
+				public void run() {
+					timerWheel.add(timer);
+				}
+			});
+		}
+		return timer;
 	}
 	
 	protected void processInput(double delta) {
@@ -200,39 +654,298 @@ public class SimpleFramework extends JFrame implements Runnable {
 		mouseInput.poll();
 	}
 
+	// Asks for the next frame to be drawn when the game runs a RenderOnDemandLoop. Other loops draw every frame anyway.
+	// Safe to call from any thread, e.g. from an input listener. Resizing the canvas requests a frame by itself
+	protected void requestRender() {
+		GameLoop loop = gameLoopStrategy;
+		if(loop != null) {
+			loop.requestRender();
+		}
+	}
+	
 	// We're keeping this empty by default
 	protected void updateObjects(double delta) {
 		
 	}
 	
-	private void renderFrame() {
+	private void renderFrame(double alpha) {
+		if(appHeadless) {
+			renderHeadlessFrame(alpha);
+			return;
+		}
+		
+		if(dirtyRegion != null) {
+			renderDirtyFrame(alpha);
+			return;
+		}
+		
+		// A frame whose buffer contents were lost draws and presents again. Those retries are added up, so each
+		// phase still records one sample per frame
+		long renderNanos = 0;
+		long presentNanos = 0;
 		do {
 			do {
 				Graphics g = null;
+				long renderStart = System.nanoTime();
 				
 				try {
 					g = bs.getDrawGraphics();
-					g.clearRect(0, 0, getWidth(), getHeight());
-					render(g);
+					// An opaque background layer covers the whole canvas anyway
+					StaticLayer background = backgroundLayer;
+					if(background == null || !background.isOpaque()) {
+						g.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+					}
+					if(qualityGovernor != null && qualityGovernor.getRenderScale() < 1.0f) {
+						drawScaledScene(g, alpha);
+					} else {
+						if(qualityGovernor != null) {
+							qualityGovernor.applyHints((Graphics2D) g);
+						}
+						drawScene(g, alpha);
+					}
+					drawOverlay(g);
 				} finally {
 					if(g != null) {
 						g.dispose();
 					}
+					renderNanos += System.nanoTime() - renderStart;
 				}
 			} while(bs.contentsRestored());
 			
+			long presentStart = System.nanoTime();
 			bs.show();
+			presentNanos += System.nanoTime() - presentStart;
 		} while(bs.contentsLost());
+		
+		frameProfiler.record(Phase.RENDER, renderNanos);
+		frameProfiler.record(Phase.PRESENT, presentNanos);
+		lastPresentNanos = presentNanos;
 	}
 	
-	// We're just rendering the FPS string by default in the boilerplate or template
-	// code. The users can override this method and draw their own stuff
-	protected void render(Graphics g) {
-		frameRate.calculate();
+	private void renderHeadlessFrame(double alpha) {
+		if(headlessImage == null) {
+			return;
+		}
+		
+		frameProfiler.begin(Phase.RENDER);
+		Graphics g = headlessImage.createGraphics();
+		try {
+			g.setColor(appBackgroundColor);
+			g.fillRect(0, 0, headlessImage.getWidth(), headlessImage.getHeight());
+			drawScene(g, alpha);
+			drawOverlay(g);
+		} finally {
+			g.dispose();
+			frameProfiler.end(Phase.RENDER);
+		}
+	}
+	
+	// Redraws the dirty regions into the persistent buffer and copies only those regions to the screen.
+	// render() is called once per merged region, with the clip set to that rectangle. Java2D skips the pixels outside
+	// the clip, but every draw call still costs its overhead, so games should skip objects that miss the clip with
+	// g.hitClip(). render() then must not change any game state, since it can run several times per frame.
+	// The clip is kept rectangular on purpose: Java2D draws with a non-rectangular clip far slower than with none at all.
+	// The buffer strategy isn't used here, dirtyBuffer is our back buffer. Since the screen can be damaged by other windows,
+	// the whole buffer is presented every FULL_PRESENT_INTERVAL, which is one blit and no redraw
+	private void renderDirtyFrame(double alpha) {
+		int width = canvas.getWidth();
+		int height = canvas.getHeight();
+		if(width <= 0 || height <= 0) {
+			return;
+		}
+		
+		if(dirtyBuffer == null || dirtyBuffer.getWidth() != width || dirtyBuffer.getHeight() != height) {
+			dirtyBuffer = canvas.getGraphicsConfiguration().createCompatibleImage(width, height);
+			dirtyRegion.addAll();
+		}
+		
+		markFrameworkText();
+		dirtyRegion.merge(width, height);
 		
+		long now = System.nanoTime();
+		boolean fullPresent = now - lastFullPresent >= FULL_PRESENT_INTERVAL || dirtyRegion.isAll();
+		if(dirtyRegion.isEmpty() && !fullPresent) {
+			return;
+		}
+		
+		if(!dirtyRegion.isEmpty()) {
+			frameProfiler.begin(Phase.RENDER);
+			for(int i = 0; i < dirtyRegion.getCount(); i++) {
+				Rectangle r = dirtyRegion.get(i);
+				Graphics2D g = dirtyBuffer.createGraphics();
+				try {
+					g.clipRect(r.x, r.y, r.width, r.height);
+					g.setColor(canvas.getBackground());
+					g.fillRect(r.x, r.y, r.width, r.height);
+					drawScene(g, alpha);
+					drawOverlay(g);
+				} finally {
+					g.dispose();
+				}
+			}
+			frameProfiler.end(Phase.RENDER);
+		}
+		
+		frameProfiler.begin(Phase.PRESENT);
+		Graphics g = canvas.getGraphics();
+		if(g != null) {
+			try {
+				if(fullPresent) {
+					g.drawImage(dirtyBuffer, 0, 0, null);
+					lastFullPresent = now;
+				} else {
+					for(int i = 0; i < dirtyRegion.getCount(); i++) {
+						Rectangle r = dirtyRegion.get(i);
+						g.drawImage(dirtyBuffer, r.x, r.y, r.x + r.width, r.y + r.height, r.x, r.y, r.x + r.width, r.y + r.height, null);
+					}
+				}
+			} finally {
+				g.dispose();
+			}
+			Toolkit.getDefaultToolkit().sync();
+		}
+		frameProfiler.end(Phase.PRESENT);
+		
+		dirtyRegion.clear();
+	}
+	
+	// The FPS line of drawOverlay() is redrawn when its value changed, and the profiler overlay every frame. There's no
+	// quality level line, since the governor is off in this mode
+	private void markFrameworkText() {
+		FontMetrics metrics = canvas.getFontMetrics(appFont);
+		int fps = getFramesPerSecond();
+		if(fps != lastShownFps) {
+			lastShownFps = fps;
+			int width = fpsLine.clear().append("FPS: ").append(fps).getWidth();
+			// Cover the old text too, in case the new one is shorter
+			dirtyRegion.add(OVERLAY_X, FPS_Y - metrics.getAscent(), Math.max(width, lastFpsWidth), metrics.getHeight());
+			lastFpsWidth = width;
+		}
+		
+		if(appShowProfiler) {
+			profilerWidth = Math.max(profilerWidth, profilerOverlay.getWidth(metrics));
+			dirtyRegion.add(OVERLAY_X, PROFILER_Y - metrics.getAscent(), profilerWidth, metrics.getHeight() * profilerOverlay.getLineCount());
+		}
+	}
+	
+	// Marks a region of the canvas (in screen pixels) to be redrawn in dirty rectangle mode. Mark both where something was and
+	// where it is now. Call it from the game thread, e.g. in updateObjects(). Does nothing when appDirtyRectangles is off
+	protected void markDirty(int x, int y, int width, int height) {
+		if(dirtyRegion != null) {
+			dirtyRegion.add(x, y, width, height);
+		}
+	}
+	
+	protected void markDirty(Rectangle r) {
+		markDirty(r.x, r.y, r.width, r.height);
+	}
+	
+	// Redraws the whole canvas in the next frame, e.g. after the whole scene changed
+	protected void markAllDirty() {
+		if(dirtyRegion != null) {
+			dirtyRegion.addAll();
+		}
+	}
+	
+	// Renders the scene into a smaller image and stretches it over the canvas. The image graphics are scaled down,
+	// so the game keeps drawing in canvas coordinates and doesn't need to know about the lower resolution
+	private void drawScaledScene(Graphics g, double alpha) {
+		int width = canvas.getWidth();
+		int height = canvas.getHeight();
+		float scale = qualityGovernor.getRenderScale();
+		int scaledWidth = Math.max(1, Math.round(width * scale));
+		int scaledHeight = Math.max(1, Math.round(height * scale));
+		
+		if(scaledImage == null || scaledImage.getWidth() != scaledWidth || scaledImage.getHeight() != scaledHeight) {
+			scaledImage = canvas.getGraphicsConfiguration().createCompatibleImage(scaledWidth, scaledHeight);
+		}
+		
+		Graphics2D sg = scaledImage.createGraphics();
+		try {
+			sg.setColor(canvas.getBackground());
+			sg.fillRect(0, 0, scaledWidth, scaledHeight);
+			sg.scale((double) scaledWidth / width, (double) scaledHeight / height);
+			qualityGovernor.applyHints(sg);
+			drawScene(sg, alpha);
+		} finally {
+			sg.dispose();
+		}
+		
+		((Graphics2D) g).setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		g.drawImage(scaledImage, 0, 0, width, height, null);
+	}
+	
+	private void drawScene(Graphics g, double alpha) {
+		StaticLayer background = backgroundLayer;
+		if(background != null) {
+			background.draw(g, canvas.getWidth(), canvas.getHeight());
+		}
+		
+		if(snapshotPipeline != null) {
+			snapshotPipeline.render(g);
+		} else {
+			render(g, alpha);
+		}
+	}
+	
+	// Always drawn at full resolution, so the statistics stay readable while the governor lowers the render scale.
+	// It runs on the render thread with pipelined rendering
+	private void drawOverlay(Graphics g) {
+		g.setFont(appFont);
+		g.setColor(appFpsTextColor);
+		fpsLine.clear().append("FPS: ").append(getFramesPerSecond());
+		fpsLine.draw(g, OVERLAY_X, FPS_Y);
+		
+		if(appShowProfiler) {
+			// The statistics are read from the game thread's ring buffers without synchronization, so with pipelined
+			// rendering a few samples can be torn or mixed. Good enough for a debug readout
+			profilerOverlay.draw(g, OVERLAY_X, PROFILER_Y);
+			
+			if(qualityGovernor != null) {
+				int y = PROFILER_Y + profilerOverlay.getLineCount() * g.getFontMetrics().getHeight();
+				g.drawString("Quality level: " + qualityGovernor.getLevel() + " (scale " + qualityGovernor.getRenderScale() + ")", OVERLAY_X, y);
+			}
+		}
+	}
+	
+	// The game loop iterations per second, from the frame profiler. With pipelined rendering it counts simulated frames,
+	// and with a RenderOnDemandLoop it also counts the frames that weren't drawn
+	protected int getFramesPerSecond() {
+		long now = System.nanoTime();
+		if(now - lastFpsUpdate >= 1_000_000_000L) {
+			lastFpsUpdate = now;
+			currentFps = (int) Math.round(frameProfiler.getFramesPerSecond());
+		}
+		return currentFps;
+	}
+	
+	// Sets a layer that is drawn under everything render() draws, e.g. a static backdrop. It's painted once and then
+	// only blitted, until it's invalidated, the canvas is resized or invalidateViewPort() is called. null removes it
+	protected void setBackgroundLayer(StaticLayer layer) {
+		backgroundLayer = layer;
+	}
+	
+	protected StaticLayer getBackgroundLayer() {
+		return backgroundLayer;
+	}
+	
+	// The governor of appDynamicQuality, or null when it's turned off
+	protected QualityGovernor getQualityGovernor() {
+		return qualityGovernor;
+	}
+	
+	// Called with the interpolation alpha between the previous and the current simulation tick. It's only meaningful
+	// in fixed time step mode, otherwise it is always 1. Games that interpolate their objects override this one instead of render(g)
+	protected void render(Graphics g, double alpha) {
+		render(g);
+	}
+	
+	// The FPS is drawn by the framework on top of the scene (See drawOverlay()), so it also shows with pipelined rendering,
+	// which doesn't call this method. The users can override this method and draw their own stuff
+	protected void render(Graphics g) {
+		// Subclasses draw their own text after calling this, with the font and colour it leaves set
 		g.setFont(appFont);
 		g.setColor(appFpsTextColor);
-		g.drawString(frameRate.getFrameRate(), 20, 20);
 	}
 	
 	private void onWindowClosing() {			
@@ -243,17 +956,23 @@ public class SimpleFramework extends JFrame implements Runnable {
 			e.printStackTrace();
 		}
 		
+		if(graphicsDevice != null) {
+			if(graphicsDevice.isDisplayChangeSupported()) {
+				graphicsDevice.setDisplayMode(originalDisplayMode);
+			}
+			graphicsDevice.setFullScreenWindow(null);
+		}
+		
 		System.exit(0);
 	}
 	
 	// This launcher function will be called from the main method to launch the app
 	protected static void launchApp(final SimpleFramework app) {
-		app.addWindowListener(new WindowAdapter() {
-			@Override
-			public void windowClosing(WindowEvent e) {
-				app.onWindowClosing();
-			}
-		});
+		if(app.appHeadless || GraphicsEnvironment.isHeadless()) {
+			app.appHeadless = true;
+			app.createHeadless();
+			return;
+		}
 		
 		SwingUtilities.invokeLater(new Runnable() {
 			@Override
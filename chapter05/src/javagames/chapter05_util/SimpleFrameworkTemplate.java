@@ -21,9 +21,28 @@ public class SimpleFrameworkTemplate extends SimpleFramework {
 		appHeight = 480;
 		appMaintainAspectRatio = true;
 		appSleepTime = 10;
+		appTargetFps = 0;
+		appUncappedFrameRate = false;
 		appTitle = "Framework Template";
 		appWorldWidth = 2.0f;
 		appWorldHeight = 2.0f;
+		appDebugFrameArena = false; // Turn on while debugging to catch frame arena objects used after their frame
+		appShowProfiler = false; // Set to true to show the per-phase frame time statistics below the FPS
+		appBufferCount = 2;
+		appFullScreen = false;
+		appDisplayMode = null;
+		appDynamicQuality = false;
+		appMinRenderScale = 0.5f;
+		appTaskBudgetMillis = 2.0;
+		appDirtyRectangles = false;
+		appFixedTimeStep = false;
+		appTicksPerSecond = 60;
+		appMaxStepsPerFrame = 5;
+		appGameLoop = null;
+		appPipelinedRendering = false;
+		appHeadless = false;
+		appHeadlessRender = true;
+		appHeadlessFrameLimit = 0;
 	}
 	
 	@Override
@@ -46,7 +65,7 @@ public class SimpleFrameworkTemplate extends SimpleFramework {
 		super.render(g);
 		
 		// Draw a circle at the center of the canvas
-		Vector2f circlePosition = getViewPortTransformMatrix().mul(new Vector2f(0, 0));
+		Vector2f circlePosition = getViewPortTransformMatrix().transformInto(frameArena.vector(0, 0), frameArena.vector());
 		g.drawOval((int) circlePosition.x, (int) circlePosition.y, 20, 20);
 	}
 	
@@ -0,0 +1,25 @@
+package javagames.chapter05_util;
+
+import java.awt.Graphics;
+
+/*
+ * Describes what a game's render thread needs to draw a frame, for SimpleFramework's pipelined rendering mode
+ * (appPipelinedRendering). In that mode the simulation thread copies the game state into a snapshot after
+ * every update, and a separate render thread draws the latest snapshot. That way the simulation of the next
+ * frame runs while the previous one is being drawn.
+ * 
+ * A snapshot should only hold plain copies of the state (positions, colors, text etc). The render thread must
+ * never read the game objects themselves, or the frame arena, since the simulation thread is changing them
+ * at the same time
+ * */
+public interface SnapshotHandler<S> {
+	
+	// Called three times at startup. The snapshots are reused after that
+	S createSnapshot();
+	
+	// Simulation thread. Copies the current state into the snapshot. alpha is the same interpolation value render(g, alpha) would get
+	void writeSnapshot(S snapshot, double alpha);
+	
+	// Render thread. Draws the snapshot
+	void renderSnapshot(Graphics g, S snapshot);
+}
@@ -0,0 +1,30 @@
+package javagames.chapter05_util;
+
+import java.awt.Graphics;
+
+// Ties a SnapshotHandler to the triple buffer that moves its snapshots between the simulation and the render thread
+class SnapshotPipeline<S> {
+	private final SnapshotHandler<S> handler;
+	private final TripleBuffer<S> buffer;
+	
+	SnapshotPipeline(SnapshotHandler<S> handler) {
+		this.handler = handler;
+		this.buffer = new TripleBuffer<>(handler::createSnapshot);
+	}
+	
+	// Simulation thread
+	void publish(double alpha) {
+		handler.writeSnapshot(buffer.getWriteBuffer(), alpha);
+		buffer.publish();
+	}
+	
+	// Render thread
+	boolean acquire() {
+		return buffer.acquire();
+	}
+	
+	// Render thread
+	void render(Graphics g) {
+		handler.renderSnapshot(g, buffer.getReadBuffer());
+	}
+}
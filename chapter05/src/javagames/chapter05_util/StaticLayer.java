@@ -0,0 +1,136 @@
+package javagames.chapter05_util;
+
+import java.awt.AlphaComposite;
+import java.awt.Composite;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+
+/*
+ * Caches parts of the scene that don't change from frame to frame (backdrops, grids, static text) in an image.
+ * The painter runs once, and every frame after that only costs a single drawImage(). It runs again when the layer
+ * is invalidated, when the size changes, or when the image's contents were lost.
+ *
+ * The image is a VolatileImage where possible, so it lives in video memory and blits with the GPU. The OS can
+ * throw its contents away at any time (e.g. on a display mode change), which is why it's validated before every draw.
+ * Without a display, a BufferedImage is used instead.
+ *
+ * draw() belongs to the rendering thread. invalidate() can be called from any thread
+ * */
+public class StaticLayer {
+	
+	public interface Painter {
+		// Paints the layer. The graphics cover width x height pixels and start out fully transparent (or undefined
+		// for an opaque layer, which then has to paint every pixel)
+		void paint(Graphics2D g, int width, int height);
+	}
+	
+	private final Painter painter;
+	private final boolean opaque;
+	private Image image;
+	private int width, height;
+	private volatile boolean dirty = true;
+	
+	// An opaque layer must cover every pixel, e.g. a backdrop. It blits faster and lets SimpleFramework skip
+	// clearing the canvas. A transparent layer can sit on top of other drawing
+	public StaticLayer(Painter painter, boolean opaque) {
+		this.painter = painter;
+		this.opaque = opaque;
+	}
+	
+	public boolean isOpaque() {
+		return opaque;
+	}
+	
+	// The painter runs again before the next draw
+	public void invalidate() {
+		dirty = true;
+	}
+	
+	// Draws the layer at (0, 0), painting it first if needed. The image is created for the device of 'g'
+	public void draw(Graphics g, int width, int height) {
+		if(width <= 0 || height <= 0) {
+			return;
+		}
+		
+		if(width != this.width || height != this.height) {
+			release();
+			this.width = width;
+			this.height = height;
+		}
+		
+		if(GraphicsEnvironment.isHeadless() || !(g instanceof Graphics2D)) {
+			drawBuffered(g);
+		} else {
+			drawVolatile(g, ((Graphics2D) g).getDeviceConfiguration());
+		}
+	}
+	
+	// Frees the cached image. It's recreated by the next draw()
+	public void release() {
+		if(image != null) {
+			image.flush();
+			image = null;
+		}
+		dirty = true;
+	}
+	
+	private void drawVolatile(Graphics g, GraphicsConfiguration gc) {
+		int transparency = opaque ? Transparency.OPAQUE : Transparency.TRANSLUCENT;
+		
+		// The contents can be lost between rendering and drawing, in which case we render again right away
+		do {
+			VolatileImage vi = image instanceof VolatileImage ? (VolatileImage) image : null;
+			int status = vi == null ? VolatileImage.IMAGE_INCOMPATIBLE : vi.validate(gc);
+			
+			if(status == VolatileImage.IMAGE_INCOMPATIBLE) {
+				if(vi != null) {
+					vi.flush();
+				}
+				vi = gc.createCompatibleVolatileImage(width, height, transparency);
+				image = vi;
+				status = VolatileImage.IMAGE_RESTORED;
+			}
+			
+			if(status == VolatileImage.IMAGE_RESTORED || dirty) {
+				dirty = false;
+				paint(vi.createGraphics());
+			}
+			
+			g.drawImage(vi, 0, 0, null);
+		} while(((VolatileImage) image).contentsLost());
+	}
+	
+	private void drawBuffered(Graphics g) {
+		if(image == null) {
+			image = new BufferedImage(width, height, opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB_PRE);
+		}
+		
+		if(dirty) {
+			dirty = false;
+			paint(((BufferedImage) image).createGraphics());
+		}
+		
+		g.drawImage(image, 0, 0, null);
+	}
+	
+	private void paint(Graphics2D g) {
+		try {
+			if(!opaque) {
+				// A volatile image starts out with undefined contents, and a repaint must not see the old layer
+				Composite composite = g.getComposite();
+				g.setComposite(AlphaComposite.Clear);
+				g.fillRect(0, 0, width, height);
+				g.setComposite(composite);
+			}
+			painter.paint(g, width, height);
+		} finally {
+			g.dispose();
+		}
+	}
+}
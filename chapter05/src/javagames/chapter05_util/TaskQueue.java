@@ -0,0 +1,83 @@
+package javagames.chapter05_util;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Lock-free queue of tasks from any number of producer threads to a single consumer thread (The game thread).
+ * It's a linked list with a dummy head node: offering a task is one atomic swap of the tail followed by linking
+ * the old tail to the new node, so producers never block each other or the consumer. Only the consumer moves the head.
+ *
+ * Between the swap and the link, a producer's node is already the tail but not reachable from the head yet. The
+ * consumer then sees an empty queue and simply picks the task up on the next drain
+ * */
+public class TaskQueue {
+	private static final class Node {
+		Runnable task;
+		volatile Node next;
+		
+		Node(Runnable task) {
+			this.task = task;
+		}
+	}
+	
+	private final AtomicReference<Node> tail;
+	private Node head; // Only touched by the consumer
+	
+	public TaskQueue() {
+		head = new Node(null);
+		tail = new AtomicReference<>(head);
+	}
+	
+	// Any thread
+	public void offer(Runnable task) {
+		if(task == null) {
+			throw new NullPointerException("task");
+		}
+		
+		Node node = new Node(task);
+		Node prev = tail.getAndSet(node);
+		prev.next = node;
+	}
+	
+	// Consumer thread. Returns null when the queue is empty
+	public Runnable poll() {
+		Node next = head.next;
+		if(next == null) {
+			return null;
+		}
+		
+		Runnable task = next.task;
+		next.task = null; // The node becomes the new dummy head, don't keep the task alive through it
+		head = next;
+		return task;
+	}
+	
+	// Consumer thread
+	public boolean isEmpty() {
+		return head.next == null;
+	}
+	
+	// Consumer thread. Runs tasks until the queue is empty or budgetNanos have passed, whichever comes first. The
+	// remaining tasks stay queued for the next call. At least one task runs, so a tiny budget can't starve the queue.
+	// A task that throws is reported and doesn't stop the others. Returns the number of tasks that ran
+	public int drain(long budgetNanos) {
+		long start = System.nanoTime();
+		int count = 0;
+		
+		Runnable task;
+		while((task = poll()) != null) {
+			try {
+				task.run();
+			} catch(RuntimeException e) {
+				e.printStackTrace();
+			}
+			count++;
+			
+			if(System.nanoTime() - start >= budgetNanos) {
+				break;
+			}
+		}
+		
+		return count;
+	}
+}
@@ -0,0 +1,159 @@
+package javagames.chapter05_util;
+
+/*
+ * Hashed timer wheel for delayed and repeating tasks. Time is cut into ticks of 'tickNanos' and the wheel has one
+ * bucket per tick, wrapping around after 'bucketCount' ticks. A timer goes into the bucket of its deadline tick, so
+ * scheduling is O(1) and every tick only looks at the timers of a single bucket, no matter how many are pending
+ * elsewhere. Timers further away than one turn of the wheel share a bucket with nearer ones and are skipped until
+ * their turn comes.
+ *
+ * Cancelling only marks the timer. It's unlinked the next time its bucket is visited.
+ *
+ * The wheel is driven by advance() and isn't thread safe. SimpleFramework advances it on the game thread and hands
+ * timers scheduled from other threads over through its task queue
+ * */
+public class TimerWheel {
+	
+	public static final class Timer {
+		private final Runnable task;
+		private final long periodTicks; // 0 for one-shot timers
+		private long deadline; // In ticks
+		private Timer next;
+		private volatile boolean cancelled;
+		
+		private Timer(Runnable task, long periodTicks) {
+			this.task = task;
+			this.periodTicks = periodTicks;
+		}
+		
+		// Safe to call from any thread. A timer that is currently firing finishes, but doesn't repeat
+		public void cancel() {
+			cancelled = true;
+		}
+		
+		public boolean isCancelled() {
+			return cancelled;
+		}
+	}
+	
+	private final long tickNanos;
+	private final Timer[] buckets;
+	private final int mask;
+	private long tick; // The last tick that was processed
+	private long elapsedNanos; // Time advanced since the last whole tick
+	private int pending;
+	
+	// bucketCount is rounded up to a power of two. For a game, 1 ms ticks and 512 buckets cover half a second per turn
+	public TimerWheel(long tickNanos, int bucketCount) {
+		if(tickNanos <= 0 || bucketCount <= 0) {
+			throw new IllegalArgumentException("The tick and the bucket count must be positive");
+		}
+		
+		int size = Integer.highestOneBit(bucketCount);
+		if(size < bucketCount) {
+			size <<= 1;
+		}
+		
+		this.tickNanos = tickNanos;
+		this.buckets = new Timer[size];
+		this.mask = size - 1;
+	}
+	
+	// Creates a timer without scheduling it. Together with add(), this lets another thread hand out the handle
+	// right away and leave the insertion to the thread that owns the wheel. A period of 0 makes a one-shot timer
+	public Timer create(Runnable task, long delayNanos, long periodNanos) {
+		if(task == null) {
+			throw new NullPointerException("task");
+		}
+		if(delayNanos < 0 || periodNanos < 0) {
+			throw new IllegalArgumentException("Negative delay or period");
+		}
+		
+		Timer timer = new Timer(task, periodNanos > 0 ? toTicks(periodNanos) : 0);
+		timer.deadline = toTicks(delayNanos); // Relative until add() is called
+		return timer;
+	}
+	
+	public void add(Timer timer) {
+		timer.deadline += tick;
+		insert(timer);
+	}
+	
+	public Timer schedule(Runnable task, long delayNanos) {
+		Timer timer = create(task, delayNanos, 0);
+		add(timer);
+		return timer;
+	}
+	
+	public Timer scheduleRepeating(Runnable task, long delayNanos, long periodNanos) {
+		if(periodNanos <= 0) {
+			throw new IllegalArgumentException("The period must be positive");
+		}
+		
+		Timer timer = create(task, delayNanos, periodNanos);
+		add(timer);
+		return timer;
+	}
+	
+	// Moves the wheel forward and fires every timer whose deadline has passed. A timer that throws is reported and
+	// doesn't stop the others
+	public void advance(long nanos) {
+		elapsedNanos += nanos;
+		while(elapsedNanos >= tickNanos) {
+			elapsedNanos -= tickNanos;
+			tick++;
+			processBucket((int) (tick & mask));
+		}
+	}
+	
+	// Number of timers in the wheel, including cancelled ones that haven't been unlinked yet
+	public int getPendingCount() {
+		return pending;
+	}
+	
+	// Anything shorter than a tick still waits for the next one
+	private long toTicks(long nanos) {
+		return Math.max(1, (nanos + tickNanos - 1) / tickNanos);
+	}
+	
+	private void insert(Timer timer) {
+		int index = (int) (timer.deadline & mask);
+		timer.next = buckets[index];
+		buckets[index] = timer;
+		pending++;
+	}
+	
+	private void processBucket(int index) {
+		// Detach the whole bucket first. Repeating timers may go right back into it
+		Timer timer = buckets[index];
+		buckets[index] = null;
+		
+		while(timer != null) {
+			Timer next = timer.next;
+			timer.next = null;
+			pending--;
+			
+			if(timer.cancelled) {
+				// Dropped
+			} else if(timer.deadline > tick) {
+				insert(timer); // Not this turn of the wheel yet
+			} else {
+				try {
+					timer.task.run();
+				} catch(RuntimeException e) {
+					e.printStackTrace();
+				}
+				
+				if(timer.periodTicks > 0 && !timer.cancelled) {
+					timer.deadline += timer.periodTicks;
+					if(timer.deadline <= tick) {
+						timer.deadline = tick + 1; // Fell behind, e.g. after a long frame. Don't fire it several times in a row
+					}
+					insert(timer);
+				}
+			}
+			
+			timer = next;
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package javagames.chapter05_util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/*
+ * Lock-free handoff of objects from one producer thread to one consumer thread. There are three slots: the
+ * producer owns one (write), the consumer owns one (read) and the third (middle) holds the latest published
+ * object. Publishing and acquiring are a single atomic swap with the middle slot, so neither side ever waits
+ * for the other. The consumer always gets the newest object. Objects the consumer was too slow for are simply
+ * overwritten
+ * */
+public class TripleBuffer<T> {
+	private static final int INDEX_MASK = 3;
+	private static final int FRESH = 4; // Set when the middle slot holds something the consumer hasn't seen yet
+	
+	private final Object[] slots = new Object[3];
+	private final AtomicInteger middle = new AtomicInteger(2);
+	private int writeIndex = 0; // Only touched by the producer
+	private int readIndex = 1; // Only touched by the consumer
+	
+	public TripleBuffer(Supplier<T> factory) {
+		for(int i = 0; i < slots.length; i++) {
+			slots[i] = factory.get();
+		}
+	}
+	
+	// Producer side. The object to fill before calling publish()
+	@SuppressWarnings("unchecked")
+	public T getWriteBuffer() {
+		return (T) slots[writeIndex];
+	}
+	
+	// Producer side. Hands the write buffer over and takes the old middle slot to write the next one
+	public void publish() {
+		writeIndex = middle.getAndSet(writeIndex | FRESH) & INDEX_MASK;
+	}
+	
+	// Consumer side. Takes the newest published object if there is one. Returns false if nothing was published
+	// since the last call, in which case the read buffer stays the same
+	public boolean acquire() {
+		if((middle.get() & FRESH) == 0) {
+			return false;
+		}
+		
+		readIndex = middle.getAndSet(readIndex) & INDEX_MASK;
+		return true;
+	}
+	
+	// Consumer side. The object taken by the last successful acquire()
+	@SuppressWarnings("unchecked")
+	public T getReadBuffer() {
+		return (T) slots[readIndex];
+	}
+}
@@ -4,26 +4,40 @@ import java.awt.Graphics;
 import java.util.List;
 
 import javagames.chapter03_util.Matrix3x3f;
+import javagames.chapter03_util.PolygonRenderer;
 import javagames.chapter03_util.Vector2f;
 
 public class Utility {
+	// The renderer reuses its coordinate buffers, so every thread that draws gets its own
+	private static final ThreadLocal<PolygonRenderer> POLYGON_RENDERER = ThreadLocal.withInitial(PolygonRenderer::new);
 	
 	// ViewPort matrix converts world co-ordinate to screen co-ordinate
 	public static Matrix3x3f createViewPortMatrix (float worldWidth, float worldHeight, float screenWidth, float screenHeight) {
+		return createViewPortMatrix(worldWidth, worldHeight, screenWidth, screenHeight, new Matrix3x3f());
+ 	}
+	
+	// Same as above but writes the matrix into dest instead of allocating one
+	public static Matrix3x3f createViewPortMatrix (float worldWidth, float worldHeight, float screenWidth, float screenHeight, Matrix3x3f dest) {
 		float sx = (screenWidth - 1) / worldWidth;
 		float sy = (screenHeight - 1) / worldHeight;
 		float tx = (screenWidth - 1) / 2.0f;
 		float ty = (screenHeight - 1) / 2.0f;
 		
-		Matrix3x3f viewPortMatrix = Matrix3x3f.scale(sx, -sy);
-		viewPortMatrix = viewPortMatrix.mul(Matrix3x3f.translate(tx, ty));
-		
-		return viewPortMatrix;
- 	}
+		// scale(sx, -sy) * translate(tx, ty) folded into a single matrix
+		return dest.set(
+				  sx, 0.0f, 0.0f,
+				0.0f,  -sy, 0.0f,
+				  tx,	ty, 1.0f);
+	}
 	
 	// Reverse viewport matrix converts screen co-ordinate to world co-ordinate. We need this to convert mouse cursor point to our world
 	// co-ordinate system. 
 	public static Matrix3x3f createReverseViewPortMatrix(float worldWidth, float worldHeight, float screenWidth, float screenHeight) {
+		return createReverseViewPortMatrix(worldWidth, worldHeight, screenWidth, screenHeight, new Matrix3x3f());
+	}
+	
+	// Same as above but writes the matrix into dest instead of allocating one
+	public static Matrix3x3f createReverseViewPortMatrix(float worldWidth, float worldHeight, float screenWidth, float screenHeight, Matrix3x3f dest) {
 		// Since it does the opposite of the ViewPort matrix, we will just flip the scaling factors
 		float sx = worldWidth / (screenWidth - 1);
 		float sy = worldHeight / (screenHeight - 1);
@@ -32,33 +46,20 @@ public class Utility {
 		
 		// Now, we will apply these transformation in the reverse order (First transformation and then scaling)
 		// Also we have to negate the translation factors to reverse the translation
-		Matrix3x3f reverseViewPortMatrix = Matrix3x3f.translate(-tx, -ty);
-		reverseViewPortMatrix = reverseViewPortMatrix.mul(Matrix3x3f.scale(sx, -sy));
-		
-		return reverseViewPortMatrix;
+		// translate(-tx, -ty) * scale(sx, -sy) folded into a single matrix
+		return dest.set(
+				    sx,	 0.0f, 0.0f,
+				  0.0f,	  -sy, 0.0f,
+				-tx * sx, ty * sy, 1.0f);
 	}
 	
-	// Draws polygon using vector array
+	// Draws polygon using vector array. The outline goes out in a single drawPolygon() call instead of a drawLine() per edge
 	public static void drawPolygon(Graphics g, Vector2f[] polygon) {
-		// Draw lines from point s to point p
-		Vector2f p;
-		Vector2f s = polygon[polygon.length - 1];
-		
-		for (int i = 0; i < polygon.length; i++) {
-			p = polygon[i];
-			g.drawLine((int)s.x, (int)s.y, (int)p.x, (int)p.y);
-			s = p;
-		}
+		POLYGON_RENDERER.get().drawPolygon(g, polygon);
 	}
 	
 	// Draws polygon using vector list (ArrayList, LinkedList whatever)
-		public static void drawPolygon(Graphics g, List<Vector2f> polygon) {
-			// Draw lines from point s to point p
-			Vector2f s = polygon.get(polygon.size() - 1);
-			
-			for (Vector2f p : polygon) {
-				g.drawLine((int)s.x, (int)s.y, (int)p.x, (int)p.y);
-				s = p;
-			}
-		}
+	public static void drawPolygon(Graphics g, List<Vector2f> polygon) {
+		POLYGON_RENDERER.get().drawPolygon(g, polygon);
+	}
 }
@@ -0,0 +1,12 @@
+package javagames.chapter05_util;
+
+import java.util.function.DoubleConsumer;
+
+public class VariableStepLoop implements GameLoop {
+	
+	@Override
+	public double advance(double delta, DoubleConsumer update) {
+		update.accept(delta);
+		return 1.0;
+	}
+}
@@ -0,0 +1,109 @@
+package javagames.framework;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.util.Random;
+
+import javagames.chapter05_util.SimpleFramework;
+import javagames.chapter05_util.StaticLayer;
+
+/*
+ * A few small boxes bouncing over a static grid, drawn in dirty rectangle mode (appDirtyRectangles). Every frame,
+ * each box marks where it was and where it is now, and only those regions are redrawn and copied to the screen.
+ * render() skips the boxes outside the region being redrawn with hitClip(), and doesn't change any state since it runs
+ * once per region. To compare, set appDirtyRectangles to false and watch the CPU use
+ * */
+public class DirtyRectangleExample extends SimpleFramework {
+	private static final int BOXES = 20;
+	private static final int BOX_SIZE = 16;
+	
+	private final float[] xs = new float[BOXES];
+	private final float[] ys = new float[BOXES];
+	private final float[] vxs = new float[BOXES];
+	private final float[] vys = new float[BOXES];
+	private final Color[] colors = new Color[BOXES];
+	
+	public DirtyRectangleExample() {
+		appTitle = "Dirty Rectangle Example";
+		appWidth = 640;
+		appHeight = 480;
+		appBackgroundColor = Color.WHITE;
+		appFpsTextColor = Color.BLACK;
+		appTargetFps = 60;
+		appDirtyRectangles = true;
+	}
+	
+	@Override
+	protected void initialize() {
+		super.initialize();
+		
+		// The grid never changes, so it's painted once into a layer and then only copied for the dirty regions
+		setBackgroundLayer(new StaticLayer(new StaticLayer.Painter() {
+			@Override
+			public void paint(Graphics2D g, int width, int height) {
+				g.setColor(Color.WHITE);
+				g.fillRect(0, 0, width, height);
+				g.setColor(Color.LIGHT_GRAY);
+				for(int x = 0; x < width; x += 32) {
+					g.drawLine(x, 0, x, height);
+				}
+				for(int y = 0; y < height; y += 32) {
+					g.drawLine(0, y, width, y);
+				}
+			}
+		}, true));
+		
+		Random random = new Random();
+		for(int i = 0; i < BOXES; i++) {
+			xs[i] = random.nextFloat() * (appWidth - BOX_SIZE);
+			ys[i] = random.nextFloat() * (appHeight - BOX_SIZE);
+			vxs[i] = (random.nextFloat() - 0.5f) * 300.0f;
+			vys[i] = (random.nextFloat() - 0.5f) * 300.0f;
+			colors[i] = Color.getHSBColor(random.nextFloat(), 0.8f, 0.9f);
+		}
+	}
+	
+	@Override
+	protected void updateObjects(double delta) {
+		super.updateObjects(delta);
+		
+		int width = canvas.getWidth();
+		int height = canvas.getHeight();
+		for(int i = 0; i < BOXES; i++) {
+			// The old position, one pixel bigger on each side since the float position is truncated when drawn
+			markDirty((int) xs[i] - 1, (int) ys[i] - 1, BOX_SIZE + 2, BOX_SIZE + 2);
+			
+			xs[i] += vxs[i] * delta;
+			ys[i] += vys[i] * delta;
+			if(xs[i] < 0 || xs[i] > width - BOX_SIZE) {
+				vxs[i] = -vxs[i];
+				xs[i] = Math.max(0, Math.min(xs[i], width - BOX_SIZE));
+			}
+			if(ys[i] < 0 || ys[i] > height - BOX_SIZE) {
+				vys[i] = -vys[i];
+				ys[i] = Math.max(0, Math.min(ys[i], height - BOX_SIZE));
+			}
+			
+			markDirty((int) xs[i] - 1, (int) ys[i] - 1, BOX_SIZE + 2, BOX_SIZE + 2);
+		}
+	}
+	
+	@Override
+	protected void render(Graphics g) {
+		super.render(g);
+		
+		for(int i = 0; i < BOXES; i++) {
+			int x = (int) xs[i];
+			int y = (int) ys[i];
+			if(g.hitClip(x, y, BOX_SIZE, BOX_SIZE)) {
+				g.setColor(colors[i]);
+				g.fillRect(x, y, BOX_SIZE, BOX_SIZE);
+			}
+		}
+	}
+	
+	public static void main(String[] args) {
+		launchApp(new DirtyRectangleExample());
+	}
+}
@@ -0,0 +1,251 @@
+package javagames.framework;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+import java.util.function.DoubleConsumer;
+
+import javagames.chapter05_util.FixedStepLoop;
+import javagames.chapter05_util.FramePacer;
+import javagames.chapter05_util.GameLoop;
+import javagames.chapter05_util.RenderOnDemandLoop;
+import javagames.chapter05_util.SemiFixedStepLoop;
+import javagames.chapter05_util.VariableStepLoop;
+
+/*
+ * Runs the same scene under different GameLoop strategies, without a window, and measures what each one costs:
+ *
+ * CPU: CPU time of the loop thread divided by the wall time (100% is one core busy the whole time)
+ * Frame time: The time between two drawn frames (avg, standard deviation, max). A steady loop has a small deviation
+ * Drift: Real time minus simulated time at the end of the run. It grows whenever a loop drops time after a stall
+ *
+ * The loop is paced with a FramePacer like SimpleFramework does, and a stall can be injected every few seconds to
+ * see how the strategies recover from a hitch (e.g. a GC pause or a slow level load).
+ * Run main() for a comparison of all the strategies with a simple particle scene
+ * */
+public class GameLoopHarness {
+	
+	public interface Scene {
+		void update(double delta);
+		void render(Graphics2D g, double alpha);
+	}
+	
+	public static class Report {
+		public String name;
+		public long frames;
+		public long renders;
+		public double cpuPercent;
+		public double avgFrameMs, stdDevFrameMs, maxFrameMs;
+		public double driftMs;
+		
+		@Override
+		public String toString() {
+			return String.format("%-12s%8d%9d%8.1f%%%10.2f%10.2f%10.2f%11.1f", name, frames, renders, cpuPercent,
+					avgFrameMs, stdDevFrameMs, maxFrameMs, driftMs);
+		}
+		
+		public static String header() {
+			return String.format("%-12s%8s%9s%9s%10s%10s%10s%11s", "loop", "frames", "renders", "cpu", "avg ms", "stddev",
+					"max ms", "drift ms");
+		}
+	}
+	
+	private int targetFps = 60;
+	private double seconds = 5.0;
+	private long stallEveryMillis = 0; // 0 turns the stalls off
+	private long stallMillis = 0;
+	private int width = 640;
+	private int height = 480;
+	
+	public GameLoopHarness setTargetFps(int targetFps) {
+		this.targetFps = targetFps;
+		return this;
+	}
+	
+	public GameLoopHarness setDuration(double seconds) {
+		this.seconds = seconds;
+		return this;
+	}
+	
+	public GameLoopHarness setStall(long everyMillis, long durationMillis) {
+		this.stallEveryMillis = everyMillis;
+		this.stallMillis = durationMillis;
+		return this;
+	}
+	
+	public GameLoopHarness setSize(int width, int height) {
+		this.width = width;
+		this.height = height;
+		return this;
+	}
+	
+	public Report run(String name, GameLoop loop, final Scene scene) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		FramePacer pacer = new FramePacer(targetFps);
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		
+		final double[] simulated = new double[1];
+		DoubleConsumer update = new DoubleConsumer() {
+			@Override
+			public void accept(double delta) {
+				scene.update(delta);
+				simulated[0] += delta;
+			}
+		};
+		
+		long durationNs = (long) (seconds * 1.0E9);
+		long stallEveryNs = stallEveryMillis * 1_000_000L;
+		long nextStallNs = stallEveryNs;
+		
+		long frames = 0, renders = 0;
+		double sum = 0.0, sumSquares = 0.0, max = 0.0;
+		
+		long startCpu = threads.getCurrentThreadCpuTime();
+		long start = System.nanoTime();
+		long last = start, lastRender = start;
+		
+		while(last - start < durationNs) {
+			long now = System.nanoTime();
+			double alpha = loop.advance((now - last) / 1.0E9, update);
+			last = now;
+			frames++;
+			
+			if(alpha != GameLoop.SKIP_RENDER) {
+				Graphics2D g = image.createGraphics();
+				try {
+					g.setColor(Color.BLACK);
+					g.fillRect(0, 0, width, height);
+					scene.render(g, alpha);
+				} finally {
+					g.dispose();
+				}
+				
+				long rendered = System.nanoTime();
+				if(renders > 0) {
+					double ms = (rendered - lastRender) / 1.0E6;
+					sum += ms;
+					sumSquares += ms * ms;
+					max = Math.max(max, ms);
+				}
+				lastRender = rendered;
+				renders++;
+			}
+			
+			if(stallEveryNs > 0 && now - start >= nextStallNs) {
+				nextStallNs += stallEveryNs;
+				sleep(stallMillis);
+				pacer.reset();
+			}
+			
+			pacer.waitForNextFrame();
+		}
+		
+		long wall = System.nanoTime() - start;
+		long cpu = threads.getCurrentThreadCpuTime() - startCpu;
+		
+		Report report = new Report();
+		report.name = name;
+		report.frames = frames;
+		report.renders = renders;
+		report.cpuPercent = 100.0 * cpu / wall;
+		
+		long intervals = Math.max(1, renders - 1);
+		report.avgFrameMs = sum / intervals;
+		report.stdDevFrameMs = Math.sqrt(Math.max(0.0, sumSquares / intervals - report.avgFrameMs * report.avgFrameMs));
+		report.maxFrameMs = max;
+		// The first frame's delta starts at 'start', so the simulation should have covered all the time up to 'last'
+		report.driftMs = ((last - start) / 1.0E9 - simulated[0]) * 1000.0;
+		return report;
+	}
+	
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch(InterruptedException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	// Bouncing particles. The on-demand loop is told to draw 10 times a second, as if an input handler asked for it
+	private static class ParticleScene implements Scene {
+		private final float[] xs, ys, vxs, vys;
+		private final int width, height;
+		private GameLoop loop;
+		private double sinceRequest;
+		
+		ParticleScene(int count, int width, int height) {
+			this.width = width;
+			this.height = height;
+			xs = new float[count];
+			ys = new float[count];
+			vxs = new float[count];
+			vys = new float[count];
+			
+			Random random = new Random(42);
+			for(int i = 0; i < count; i++) {
+				xs[i] = random.nextFloat() * width;
+				ys[i] = random.nextFloat() * height;
+				vxs[i] = (random.nextFloat() - 0.5f) * 200.0f;
+				vys[i] = (random.nextFloat() - 0.5f) * 200.0f;
+			}
+		}
+		
+		Scene with(GameLoop loop) {
+			this.loop = loop;
+			return this;
+		}
+		
+		@Override
+		public void update(double delta) {
+			float dt = (float) delta;
+			for(int i = 0; i < xs.length; i++) {
+				xs[i] += vxs[i] * dt;
+				ys[i] += vys[i] * dt;
+				if(xs[i] < 0 || xs[i] >= width) {
+					vxs[i] = -vxs[i];
+				}
+				if(ys[i] < 0 || ys[i] >= height) {
+					vys[i] = -vys[i];
+				}
+			}
+			
+			sinceRequest += delta;
+			if(sinceRequest >= 0.1) {
+				sinceRequest = 0.0;
+				loop.requestRender();
+			}
+		}
+		
+		@Override
+		public void render(Graphics2D g, double alpha) {
+			g.setColor(Color.GREEN);
+			for(int i = 0; i < xs.length; i++) {
+				g.fillRect((int) xs[i], (int) ys[i], 2, 2);
+			}
+		}
+	}
+	
+	public static void main(String[] args) {
+		GameLoopHarness harness = new GameLoopHarness().setTargetFps(60).setDuration(5.0).setStall(2000, 150);
+		GameLoop[] loops = {
+			new VariableStepLoop(),
+			new FixedStepLoop(60, 5),
+			new SemiFixedStepLoop(1.0 / 60.0, 5),
+			new RenderOnDemandLoop()
+		};
+		String[] names = { "variable", "fixed", "semi-fixed", "on-demand" };
+		
+		// Warm up once so that the first loop isn't measured with the JIT still compiling
+		harness.setDuration(1.0).run("warmup", new VariableStepLoop(), new ParticleScene(2000, 640, 480).with(loops[0]));
+		harness.setDuration(5.0);
+		
+		System.out.println("60 FPS target, 150 ms stall every 2 s, 2000 particles");
+		System.out.println(Report.header());
+		for(int i = 0; i < loops.length; i++) {
+			System.out.println(harness.run(names[i], loops[i], new ParticleScene(2000, 640, 480).with(loops[i])));
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package javagames.framework;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import javagames.chapter05_util.SimpleFramework;
+import javagames.chapter05_util.SnapshotHandler;
+
+/*
+ * Runs the same particle scene in headless mode twice, once drawn on the game thread and once pipelined through a
+ * SnapshotHandler (appPipelinedRendering), and prints how many updates and rendered frames per second each one got.
+ * The scene is tuned so that updating and drawing cost roughly the same. Pipelining can then approach twice the
+ * throughput, but only with a free core for the render thread. On a single core both threads share it and the
+ * pipelined run is no faster
+ * */
+public class PipelinedRenderingBenchmark extends SimpleFramework {
+	private static final int PARTICLES = 20000;
+	
+	private final float[] xs = new float[PARTICLES];
+	private final float[] ys = new float[PARTICLES];
+	private final float[] vxs = new float[PARTICLES];
+	private final float[] vys = new float[PARTICLES];
+	private final long durationMillis;
+	private final CountDownLatch finished = new CountDownLatch(1);
+	private long startNanos, endNanos;
+	private long updates;
+	private volatile long renders; // Counted on the render thread when pipelined
+	
+	// A copy of the particle positions, which is all the render thread needs
+	private static final class Snapshot {
+		final float[] xs = new float[PARTICLES];
+		final float[] ys = new float[PARTICLES];
+	}
+	
+	public PipelinedRenderingBenchmark(boolean pipelined, long durationMillis) {
+		this.durationMillis = durationMillis;
+		appHeadless = true;
+		appUncappedFrameRate = true;
+		appPipelinedRendering = pipelined;
+		appWidth = 640;
+		appHeight = 480;
+		
+		if(pipelined) {
+			setSnapshotHandler(new SnapshotHandler<Snapshot>() {
+				@Override
+				public Snapshot createSnapshot() {
+					return new Snapshot();
+				}
+				
+				@Override
+				public void writeSnapshot(Snapshot snapshot, double alpha) {
+					System.arraycopy(xs, 0, snapshot.xs, 0, PARTICLES);
+					System.arraycopy(ys, 0, snapshot.ys, 0, PARTICLES);
+				}
+				
+				@Override
+				public void renderSnapshot(Graphics g, Snapshot snapshot) {
+					drawParticles(g, snapshot.xs, snapshot.ys);
+				}
+			});
+		}
+	}
+	
+	@Override
+	protected void initialize() {
+		super.initialize();
+		
+		Random random = new Random(42);
+		for(int i = 0; i < PARTICLES; i++) {
+			xs[i] = random.nextFloat() * appWidth;
+			ys[i] = random.nextFloat() * appHeight;
+			vxs[i] = (random.nextFloat() - 0.5f) * 200.0f;
+			vys[i] = (random.nextFloat() - 0.5f) * 200.0f;
+		}
+		
+		runLater(this::stopGame, durationMillis);
+		startNanos = System.nanoTime();
+	}
+	
+	@Override
+	protected void updateObjects(double delta) {
+		float dt = (float) delta;
+		for(int i = 0; i < PARTICLES; i++) {
+			// A little swirl, so that the update costs about as much as drawing
+			float angle = (float) Math.atan2(ys[i] - appHeight * 0.5f, xs[i] - appWidth * 0.5f);
+			vxs[i] += (float) -Math.sin(angle) * dt;
+			vys[i] += (float) Math.cos(angle) * dt;
+			
+			xs[i] += vxs[i] * dt;
+			ys[i] += vys[i] * dt;
+			if(xs[i] < 0 || xs[i] >= appWidth) {
+				vxs[i] = -vxs[i];
+			}
+			if(ys[i] < 0 || ys[i] >= appHeight) {
+				vys[i] = -vys[i];
+			}
+		}
+		updates++;
+	}
+	
+	@Override
+	protected void render(Graphics g) {
+		super.render(g);
+		drawParticles(g, xs, ys);
+	}
+	
+	private void drawParticles(Graphics g, float[] xs, float[] ys) {
+		g.setColor(Color.GREEN);
+		for(int i = 0; i < PARTICLES; i++) {
+			g.fillRect((int) xs[i], (int) ys[i], 2, 2);
+		}
+		renders++;
+	}
+	
+	@Override
+	protected void terminate() {
+		super.terminate();
+		endNanos = System.nanoTime();
+		finished.countDown();
+	}
+	
+	private String runAndReport(String name) throws InterruptedException {
+		launchApp(this);
+		finished.await();
+		
+		double seconds = (endNanos - startNanos) / 1.0E9;
+		return String.format("%-12s%10.1f%10.1f", name, updates / seconds, renders / seconds);
+	}
+	
+	public static void main(String[] args) throws InterruptedException {
+		System.out.println("Cores: " + Runtime.getRuntime().availableProcessors() + ", " + PARTICLES + " particles, headless");
+		
+		// Warm up once so that the first run isn't measured with the JIT still compiling
+		new PipelinedRenderingBenchmark(false, 2000).runAndReport("warmup");
+		new PipelinedRenderingBenchmark(true, 2000).runAndReport("warmup");
+		
+		System.out.println(String.format("%-12s%10s%10s", "mode", "updates/s", "frames/s"));
+		System.out.println(new PipelinedRenderingBenchmark(false, 5000).runAndReport("sequential"));
+		System.out.println(new PipelinedRenderingBenchmark(true, 5000).runAndReport("pipelined"));
+	}
+}
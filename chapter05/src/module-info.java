@@ -1,5 +1,6 @@
 module chapter05 {
   requires java.desktop;
+  requires java.management;
 
   requires chapter01;
   requires chapter02;
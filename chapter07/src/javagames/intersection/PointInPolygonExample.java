@@ -2,15 +2,20 @@ package javagames.intersection;
 
 import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
+import javagames.chapter01_util.HudText;
 import javagames.chapter03_util.Matrix3x3f;
+import javagames.chapter03_util.PointCloudRenderer;
 import javagames.chapter03_util.Vector2f;
+import javagames.chapter03_util.Vector2fBuffer;
 import javagames.chapter05_util.SimpleFramework;
+import javagames.chapter05_util.StaticLayer;
 import javagames.chapter05_util.Utility;
 
 public class PointInPolygonExample extends SimpleFramework {
@@ -20,10 +25,16 @@ public class PointInPolygonExample extends SimpleFramework {
 	private ArrayList<Vector2f> polygon;
 	private ArrayList<Vector2f> worldPolygon;
 	
-	private ArrayList<Vector2f> insidePoints;
-	private ArrayList<Vector2f> outsidePoints;
+	// The random points are kept in primitive x/y buffers so that they can be generated and transformed
+	// to the screen without creating thousands of Vector2f objects every frame
+	private Vector2fBuffer insidePoints;
+	private Vector2fBuffer outsidePoints;
+	private Vector2fBuffer screenPoints;
+	private PointCloudRenderer pointCloud; // Writes the points straight into an image instead of a fillRect() per point
 	
 	private Vector2f mousePos;
+	private HudText.Line windingLine;
+	private HudText.Line mouseLine;
 	private boolean mouseIsHovering;
 	private boolean winding;
 	
@@ -42,17 +53,36 @@ public class PointInPolygonExample extends SimpleFramework {
 		polygon = new ArrayList<>();
 		worldPolygon = new ArrayList<>();
 		
-		insidePoints = new ArrayList<>();
-		outsidePoints = new ArrayList<>();
+		insidePoints = new Vector2fBuffer(MAX_POINTS);
+		outsidePoints = new Vector2fBuffer(MAX_POINTS);
+		screenPoints = new Vector2fBuffer(MAX_POINTS);
+		pointCloud = new PointCloudRenderer();
+		
+		// The background and the instructions never change, so they are painted once instead of every frame
+		setBackgroundLayer(new StaticLayer(new StaticLayer.Painter() {
+			@Override
+			public void paint(Graphics2D g, int width, int height) {
+				g.setColor(appBackgroundColor);
+				g.fillRect(0, 0, width, height);
+				
+				g.setFont(appFont);
+				g.setColor(appFpsTextColor);
+				g.drawString("Left-Click to add points", 20, 65);
+				g.drawString("Right-Click to clear points", 20, 80);
+				g.drawString("Space bar to toggle winding",	20, 95);
+			}
+		}, true));
 		
 		mousePos = new Vector2f();
+		windingLine = hud.createLine();
+		mouseLine = hud.createLine();
 	}
 	
 	@Override
 	protected void processInput(double delta) {
 		super.processInput(delta);
 		
-		mousePos = getWorldMousePosition();
+		getWorldMousePosition(mousePos);
 		
 		// Press space to toggle winding
 		if(keyboardInput.keyDownOnce(KeyEvent.VK_SPACE)) {
@@ -61,7 +91,8 @@ public class PointInPolygonExample extends SimpleFramework {
 		
 		// Draw polygon as the user clicks left mouse button
 		if(mouseInput.buttonDownOnce(MouseEvent.BUTTON1)) {
-			polygon.add(mousePos);
+			// mousePos gets overwritten every frame, so the polygon needs its own copy
+			polygon.add(new Vector2f(mousePos));
 		}
 		
 		// Clear the polygon if the user clicks the right mouse button
@@ -71,6 +102,10 @@ public class PointInPolygonExample extends SimpleFramework {
 	}
 	
 	private boolean pointInPolygon(Vector2f point, List<Vector2f> polygon, boolean winding) {
+		return pointInPolygon(point.x, point.y, polygon, winding);
+	}
+	
+	private boolean pointInPolygon(float pointX, float pointY, List<Vector2f> polygon, boolean winding) {
 		// We will use it as the winding number when we will use winding.
 		// Otherwise, it will be used as a boolean (0/1)
 		int inside = 0;
@@ -78,20 +113,20 @@ public class PointInPolygonExample extends SimpleFramework {
 		// A polygon must contain at least 3 points
 		if(polygon.size() > 2) {
 			Vector2f startPoint = polygon.get(polygon.size() - 1);
-			boolean startPointIsAbove = startPoint.y >= point.y;
+			boolean startPointIsAbove = startPoint.y >= pointY;
 			
 			for(Vector2f endPoint : polygon) {
-				boolean endPointIsAbove = endPoint.y >= point.y;
+				boolean endPointIsAbove = endPoint.y >= pointY;
 				
 				// The start and end point has to be in the opposite direction of the 
 				// point to make intersection possible
 				if(startPointIsAbove != endPointIsAbove) {
 					// Applying (y-y1) = m*(x-x1) formula
 					float m = (endPoint.y - startPoint.y) / (endPoint.x - startPoint.x);
-					float x = startPoint.x + ((point.y - startPoint.y) / m);
+					float x = startPoint.x + ((pointY - startPoint.y) / m);
 					
 					// Intersection will be possible only if intersection occurs ahead of the point
-					if(x >= point.x) {
+					if(x >= pointX) {
 						if(winding) {
 							// If start point is above(clockwise) add 1. Otherwise (counter-clockwise) subtract 1
 							inside += startPointIsAbove ? 1 : -1;
@@ -127,12 +162,10 @@ public class PointInPolygonExample extends SimpleFramework {
 			float x = (rand.nextFloat() * 2.0f) - 1.0f;
 			float y = (rand.nextFloat() * 2.0f) - 1.0f;
 			
-			Vector2f point = new Vector2f(x, y);
-			
-			if(pointInPolygon(point, polygon, winding)) {
-				insidePoints.add(point);
+			if(pointInPolygon(x, y, polygon, winding)) {
+				insidePoints.add(x, y);
 			} else {
-				outsidePoints.add(point);
+				outsidePoints.add(x, y);
 			}
 		}
 	}
@@ -141,12 +174,10 @@ public class PointInPolygonExample extends SimpleFramework {
 	protected void render(Graphics g) {
 		super.render(g);
 		
-		g.drawString("Winding: " + (winding ? "On" : "Off"), 20, 35);
-		String mousePosStr = String.format("Mouse: (%.2f, %.2f)", mousePos.x, mousePos.y);
-		g.drawString(mousePosStr, 20, 50);
-		g.drawString("Left-Click to add points", 20, 65);
-		g.drawString("Right-Click to clear points", 20, 80);
-		g.drawString("Space bar to toggle winding",	20, 95);
+		windingLine.clear().append("Winding: ").append(winding ? "On" : "Off");
+		windingLine.draw(g, 20, 35);
+		mouseLine.clear().append("Mouse: (").append(mousePos.x, 2).append(", ").append(mousePos.y, 2).append(')');
+		mouseLine.draw(g, 20, 50);
 		
 		Matrix3x3f viewPortMatrix = getViewPortTransformMatrix();
 		
@@ -164,18 +195,10 @@ public class PointInPolygonExample extends SimpleFramework {
 		}
 		
 		// Draw random points (Outside points red, inside points blue)
-		g.setColor(Color.BLUE);
-		for(Vector2f vector: insidePoints) {
-			Vector2f point = viewPortMatrix.mul(vector);
-			g.fillRect((int)point.x, (int)point.y, 1, 1);
-		}
-		
-		g.setColor(Color.RED);
-		for(Vector2f vector : outsidePoints) {
-			Vector2f point = viewPortMatrix.mul(vector);
-			g.fillRect((int)point.x, (int)point.y, 1, 1);
-		}
-		
+		pointCloud.begin(canvas.getWidth(), canvas.getHeight());
+		pointCloud.plot(insidePoints.transform(viewPortMatrix, screenPoints), Color.BLUE);
+		pointCloud.plot(outsidePoints.transform(viewPortMatrix, screenPoints), Color.RED);
+		pointCloud.draw(g);
 	}
 
 	public static void main(String[] args) {
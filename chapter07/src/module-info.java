@@ -1,6 +1,7 @@
 module chapter07 {
   requires java.desktop;
 
+  requires chapter01;
   requires chapter02;
   requires chapter03;
   requires chapter05;